@@ -9,19 +9,38 @@
 package org.fife.ui.autocomplete;
 
 import java.io.Serializable;
+import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.Callable;
 
 import javax.swing.text.JTextComponent;
 
 
 /**
  * A base class for completion providers.  {@link Completion}s are kept in
- * a sorted list.  To get the list of completions that match a given input,
- * a binary search is done to find the first matching completion, then all
- * succeeding completions that also match are also returned.
+ * a list sorted case-insensitively by their input text, so the completions
+ * matching a given input always form a contiguous range of that list.  The
+ * range is found by a {@link CompletionIndex}, which by default binary searches
+ * the list; providers with very many completions may prefer a
+ * {@link TrieCompletionIndex} instead.<p>
+ *
+ * The list is copy-on-write: every modification builds a new list and
+ * publishes it atomically, and a published list is never modified again.
+ * This makes it safe to add, remove or replace completions from a background
+ * thread while the Event Dispatch Thread is querying them.  Readers never
+ * block, and always see either the whole old or the whole new set of
+ * completions.  Since each modification copies the list, prefer the bulk
+ * methods such as {@link #addCompletions(List)} and
+ * {@link #setCompletions(List)} when adding many completions.  Completions
+ * added one at a time with {@link #addCompletion(Completion)} are buffered
+ * instead, and merged into the list in a single pass the next time it is
+ * queried, so streaming completions in one by one doesn't copy the list for
+ * each of them.
  *
  * @author Robert Futrell
  * @version 1.0
@@ -30,31 +49,92 @@ public abstract class AbstractCompletionProvider
 								extends CompletionProviderBase {
 
 	/**
-	 * The completions this provider is aware of.  Subclasses should ensure
-	 * that this list is sorted alphabetically (case-insensitively).
+	 * The completions this provider is aware of, sorted alphabetically
+	 * (case-insensitively).  This is a read-only snapshot; it is replaced,
+	 * never modified, each time this provider's completions change.
+	 * Completions added with {@link #addCompletion(Completion)} are only
+	 * merged into it when this provider is next queried, for example through
+	 * {@link #getCompletionIndex()}.
+	 *
+	 * @deprecated This list can no longer be modified, and may be missing
+	 *             completions recently added with
+	 *             {@link #addCompletion(Completion)}.  Use
+	 *             {@link #getAllCompletions()} instead.
 	 */
-	protected List<Completion> completions;
+	@Deprecated
+	protected volatile List<Completion> completions;
 
 	/**
 	 * Compares a {@link Completion} against a String.
 	 */
 	protected CaseInsensitiveComparator comparator;
 
+	/**
+	 * Creates the index for each snapshot.
+	 */
+	private CompletionIndex.Factory indexFactory;
+
+	/**
+	 * The current completions and their index.
+	 */
+	private volatile Snapshot snapshot;
+
+	/**
+	 * Completions added one at a time that haven't been merged into
+	 * {@link #snapshot} yet, or <code>null</code> if there are none.  This
+	 * is guarded by {@link #writeLock}.
+	 */
+	private List<Completion> pending;
+
+	/**
+	 * Whether {@link #pending} holds completions, so readers can check
+	 * without taking {@link #writeLock}.
+	 */
+	private volatile boolean hasPending;
+
+	/**
+	 * Serializes modifications of the completions.  Readers only take this
+	 * lock to merge {@link #pending} completions.
+	 */
+	private final Object writeLock = new Object();
+
+	/**
+	 * The order {@link #completions} are kept in: case-insensitively by input
+	 * text, then by their natural order (e.g. function overloads by their
+	 * parameters).
+	 */
+	static final Comparator<Completion> SORT_COMPARATOR =
+								new SortComparator();
+
+	/**
+	 * Whether each subclass leaves computing completions to this class, so
+	 * {@link #createCompletionsTask(JTextComponent)} may compute them from
+	 * a snapshot.  This is guarded by its own lock.
+	 */
+	private static final Map<Class<?>, Boolean> snapshotTaskClasses =
+								new WeakHashMap<Class<?>, Boolean>();
+
 
 	/**
 	 * Constructor.
 	 */
 	public AbstractCompletionProvider() {
 		comparator = new CaseInsensitiveComparator();
+		indexFactory = SortedListCompletionIndex.FACTORY;
 		clearParameterizedCompletionParams();
-		completions = new ArrayList<Completion>();
+		publish(new ArrayList<Completion>(0));
 	}
 
 
 	/**
-	 * Adds a single completion to this provider.  If you are adding multiple
-	 * completions to this provider, for efficiency reasons please consider
-	 * using {@link #addCompletions(List)} instead.
+	 * Adds a single completion to this provider.  The completion is buffered,
+	 * and all completions buffered this way are sorted and merged with the
+	 * ones already known in a single pass the next time this provider is
+	 * queried.  Adding many completions one at a time between queries is
+	 * therefore cheap, but each query following an addition copies the
+	 * list.  If you have all the completions to add at once, prefer
+	 * {@link #addCompletions(List)}, or {@link #addSortedCompletions(List)}
+	 * if they are already sorted.
 	 *
 	 * @param c The completion to add.
 	 * @throws IllegalArgumentException If the completion's provider isn't
@@ -64,28 +144,88 @@ public abstract class AbstractCompletionProvider
 	 * @see #clear()
 	 */
 	public void addCompletion(Completion c) {
-		checkProviderAndAdd(c);
-		Collections.sort(completions);
+		checkProvider(c);
+		synchronized (writeLock) {
+			if (pending==null) {
+				pending = new ArrayList<Completion>();
+			}
+			pending.add(c);
+			hasPending = true;
+		}
 	}
 
 
 	/**
-	 * Adds {@link Completion}s to this provider.
+	 * Adds {@link Completion}s to this provider.  The completions are sorted,
+	 * then merged with the ones already known in a single pass.
 	 *
 	 * @param completions The completions to add.  This cannot be
 	 *        <code>null</code>.
 	 * @throws IllegalArgumentException If a completion's provider isn't
 	 *         this <tt>CompletionProvider</tt>.
 	 * @see #addCompletion(Completion)
+	 * @see #addSortedCompletions(List)
 	 * @see #removeCompletion(Completion)
 	 * @see #clear()
 	 */
 	public void addCompletions(List<Completion> completions) {
-		//this.completions.addAll(completions);
-		for (Completion c : completions) {
-			checkProviderAndAdd(c);
+		List<Completion> sorted = new ArrayList<Completion>(completions);
+		Collections.sort(sorted, SORT_COMPARATOR);
+		addSortedCompletions(sorted);
+	}
+
+
+	/**
+	 * Adds {@link Completion}s that are already sorted to this provider.
+	 * They are merged with the ones already known in linear time.  The list
+	 * must be sorted case-insensitively by input text, with completions that
+	 * have the same input text in their natural order (the order
+	 * {@link #addCompletions(List)} would put them in).
+	 *
+	 * @param completions The completions to add.  This cannot be
+	 *        <code>null</code>.
+	 * @throws IllegalArgumentException If a completion's provider isn't
+	 *         this <tt>CompletionProvider</tt>, or the completions aren't
+	 *         sorted.
+	 * @see #addCompletions(List)
+	 */
+	public void addSortedCompletions(List<Completion> completions) {
+		checkSorted(completions);
+		synchronized (writeLock) {
+			mergePending();
+			List<Completion> old = snapshot.completions;
+			if (old.isEmpty()) {
+				publish(new ArrayList<Completion>(completions));
+			}
+			else {
+				publish(merge(old, completions));
+			}
+		}
+	}
+
+
+	/**
+	 * Adds completions known to be sorted and to belong to this provider,
+	 * without checking either.  If this provider has no completions yet, the
+	 * list itself is used, so that a list whose elements are created as they
+	 * are read, such as one from a {@link CompletionCatalog}, only creates
+	 * those elements queries actually look at.
+	 *
+	 * @param completions The completions to add.  This list must not be
+	 *        modified afterward.
+	 * @see #addSortedCompletions(List)
+	 */
+	void addPresortedCompletions(List<Completion> completions) {
+		synchronized (writeLock) {
+			mergePending();
+			List<Completion> old = snapshot.completions;
+			if (old.isEmpty()) {
+				publish(completions);
+			}
+			else {
+				publish(merge(old, completions));
+			}
 		}
-		Collections.sort(this.completions);
 	}
 
 
@@ -97,18 +237,61 @@ public abstract class AbstractCompletionProvider
 	 */
 	protected void addWordCompletions(String[] words) {
 		int count = words==null ? 0 : words.length;
+		List<Completion> list = new ArrayList<Completion>(count);
 		for (int i=0; i<count; i++) {
-			completions.add(new BasicCompletion(this, words[i]));
+			list.add(new BasicCompletion(this, words[i]));
 		}
-		Collections.sort(completions);
+		addCompletions(list);
 	}
 
 
-	protected void checkProviderAndAdd(Completion c) {
+	/**
+	 * Throws an exception if a completion doesn't belong to this provider.
+	 *
+	 * @param c The completion.
+	 * @throws IllegalArgumentException If the completion's provider isn't
+	 *         this <tt>CompletionProvider</tt>.
+	 */
+	private void checkProvider(Completion c) {
 		if (c.getProvider()!=this) {
 			throw new IllegalArgumentException("Invalid CompletionProvider");
 		}
-		completions.add(c);
+	}
+
+
+	/**
+	 * Adds a completion to this provider.  This is equivalent to
+	 * {@link #addCompletion(Completion)}, and is kept for subclasses that
+	 * used it to add completions before sorting them themselves.
+	 *
+	 * @param c The completion to add.
+	 * @throws IllegalArgumentException If the completion's provider isn't
+	 *         this <tt>CompletionProvider</tt>.
+	 */
+	protected void checkProviderAndAdd(Completion c) {
+		addCompletion(c);
+	}
+
+
+	/**
+	 * Throws an exception if completions don't belong to this provider, or
+	 * aren't sorted.
+	 *
+	 * @param completions The completions.
+	 * @throws IllegalArgumentException If a completion's provider isn't
+	 *         this <tt>CompletionProvider</tt>, or the completions aren't
+	 *         sorted.
+	 */
+	private void checkSorted(List<Completion> completions) {
+		Completion prev = null;
+		for (Completion c : completions) {
+			checkProvider(c);
+			if (prev!=null && SORT_COMPARATOR.compare(prev, c)>0) {
+				throw new IllegalArgumentException(
+						"Completions are not sorted: " + c);
+			}
+			prev = c;
+		}
 	}
 
 
@@ -121,7 +304,129 @@ public abstract class AbstractCompletionProvider
 	 * @see #removeCompletion(Completion)
 	 */
 	public void clear() {
-		completions.clear();
+		synchronized (writeLock) {
+			pending = null;
+			hasPending = false;
+			publish(new ArrayList<Completion>(0));
+		}
+	}
+
+
+	/**
+	 * {@inheritDoc}<p>
+	 *
+	 * Only the already-entered text, the current snapshot of completions,
+	 * the matchers, the sort order and the parent's task are captured here;
+	 * looking up and sorting the matching completions (and, if necessary,
+	 * building the index) is left to the task.  If a subclass overrides
+	 * {@link #getCompletionsImpl(JTextComponent)} or
+	 * {@link #sortCompletions(List, List, String)}, its completions are
+	 * computed right away instead, on the calling thread, as
+	 * {@link CompletionProviderBase} does.
+	 */
+	@Override
+	public Callable<List<Completion>> createCompletionsTask(
+			JTextComponent comp) {
+		if (!isSnapshotTaskSupported(getClass())) {
+			return super.createCompletionsTask(comp);
+		}
+		final String text = getAlreadyEnteredText(comp);
+		final Snapshot snapshot = getSnapshot();
+		final CompletionMatcher matcher = getCompletionMatcher();
+		final Comparator<Completion> sortComparator = createComparator(text);
+		final boolean removeDuplicates = getRemoveDuplicates();
+		final Callable<List<Completion>> parentTask =
+				createParentCompletionsTask(comp);
+		return new Callable<List<Completion>>() {
+			public List<Completion> call() throws Exception {
+				List<Completion> completions =
+						getCompletions(snapshot, text, matcher);
+				List<Completion> parentCompletions = parentTask==null ?
+						null : parentTask.call();
+				return sortCompletions(completions, parentCompletions,
+						sortComparator, removeDuplicates);
+			}
+		};
+	}
+
+
+	/**
+	 * {@inheritDoc}<p>
+	 *
+	 * This implementation returns <code>true</code> unless a subclass
+	 * overrides {@link #getCompletionsImpl(JTextComponent)} or
+	 * {@link #sortCompletions(List, List, String)}, or this provider's
+	 * parent isn't prefix-monotone itself.
+	 */
+	@Override
+	public boolean isPrefixMonotone() {
+		return isSnapshotTaskSupported(getClass()) &&
+				(getParent()==null || Util.isPrefixMonotone(getParent()));
+	}
+
+
+	/**
+	 * Returns whether a method is declared by this class or one of its
+	 * superclasses, rather than overridden by a subclass.
+	 *
+	 * @param clazz The class to look up the method in.
+	 * @param name The name of the method.
+	 * @param paramTypes The parameter types of the method.
+	 * @return Whether the method is not overridden.
+	 */
+	private static boolean isInherited(Class<?> clazz, String name,
+			Class<?>... paramTypes) {
+		for (Class<?> c=clazz; c!=null; c=c.getSuperclass()) {
+			try {
+				Method m = c.getDeclaredMethod(name, paramTypes);
+				return m.getDeclaringClass().isAssignableFrom(
+						AbstractCompletionProvider.class);
+			} catch (NoSuchMethodException nsme) {
+				// Keep looking in the superclass
+			} catch (SecurityException se) {
+				return false;
+			}
+		}
+		return false;
+	}
+
+
+	/**
+	 * Returns whether instances of a class compute their completions the
+	 * way this class does, so they can be computed from a snapshot off the
+	 * Event Dispatch Thread.  This is only looked up once per class.
+	 *
+	 * @param clazz The class.
+	 * @return Whether completions can be computed from a snapshot.
+	 */
+	private static boolean isSnapshotTaskSupported(Class<?> clazz) {
+		synchronized (snapshotTaskClasses) {
+			Boolean supported = snapshotTaskClasses.get(clazz);
+			if (supported==null) {
+				supported = Boolean.valueOf(
+					isInherited(clazz, "getCompletionsImpl",
+							JTextComponent.class) &&
+					isInherited(clazz, "sortCompletions",
+							List.class, List.class, String.class));
+				snapshotTaskClasses.put(clazz, supported);
+			}
+			return supported.booleanValue();
+		}
+	}
+
+
+	/**
+	 * Returns all of this provider's completions, sorted alphabetically
+	 * (case-insensitively).  Completions added one at a time with
+	 * {@link #addCompletion(Completion)} are merged in first.  The returned
+	 * list is a read-only snapshot; later changes to this provider's
+	 * completions are not reflected in it.
+	 *
+	 * @return The completions.  This does not include completions from the
+	 *         parent provider, if there is one.
+	 */
+	protected List<Completion> getAllCompletions() {
+		return getSnapshot().completions;
 	}
 
 
@@ -133,27 +438,52 @@ public abstract class AbstractCompletionProvider
 	 * @return A list of {@link Completion}s, or <code>null</code> if there
 	 *         are no matching <tt>Completion</tt>s.
 	 */
-	@SuppressWarnings("unchecked")
 	public List<Completion> getCompletionByInputText(String inputText) {
+		List<Completion> matches = getCompletionIndex().
+				getCompletionsWithInputText(inputText);
+		return matches.isEmpty() ? null : matches;
+	}
 
-		// Find any entry that matches this input text (there may be > 1).
-		int end = Collections.binarySearch(completions, inputText, comparator);
-		if (end<0) {
-			return null;
-		}
 
-		// There might be multiple entries with the same input text.
-		int start = end;
-		while (start>0 &&
-				comparator.compare(completions.get(start-1), inputText)==0) {
-			start--;
-		}
-		int count = completions.size();
-		while (++end<count &&
-				comparator.compare(completions.get(end), inputText)==0);
+	/**
+	 * Returns the number of completions in this provider starting with the
+	 * specified text, ignoring case.  This is cheap to compute, and does not
+	 * require the matching completions to be collected.  Note that this does
+	 * not include completions from the parent provider, if there is one.
+	 * Applications can use this to tell users how many completions there
+	 * are, for example in a status bar.
+	 *
+	 * @param text The already-entered text.
+	 * @return The number of matching completions.
+	 */
+	public int getCompletionCount(String text) {
+		return getCompletionIndex().getCompletionCount(text);
+	}
 
-		return completions.subList(start, end); // (inclusive, exclusive)
 
+	/**
+	 * Returns the index over the current snapshot of this provider's
+	 * completions, creating it if necessary.  Callers running a query should
+	 * fetch the index once and use it throughout, since completions may be
+	 * replaced concurrently.
+	 *
+	 * @return The index.
+	 * @see #setCompletionIndexFactory(CompletionIndex.Factory)
+	 */
+	protected CompletionIndex getCompletionIndex() {
+		return getSnapshot().getIndex();
+	}
+
+
+	/**
+	 * Returns the factory used to create this provider's
+	 * {@link CompletionIndex}.
+	 *
+	 * @return The factory.
+	 * @see #setCompletionIndexFactory(CompletionIndex.Factory)
+	 */
+	public CompletionIndex.Factory getCompletionIndexFactory() {
+		return indexFactory;
 	}
 
 
@@ -161,46 +491,130 @@ public abstract class AbstractCompletionProvider
 	 * {@inheritDoc}
 	 */
 	@Override
-	@SuppressWarnings("unchecked")
 	protected List<Completion> getCompletionsImpl(JTextComponent comp) {
+		return getCompletions(getSnapshot(), getAlreadyEnteredText(comp),
+				getCompletionMatcher());
+	}
 
-		List<Completion> retVal = new ArrayList<Completion>();
-		String text = getAlreadyEnteredText(comp);
 
-		if (text!=null) {
+	/**
+	 * Returns the completions matching the already-entered text.  Prefix
+	 * matches are looked up in the index.  Otherwise, the character masks
+	 * of the completions' input texts rule out most completions before the
+	 * matcher has to look at them.
+	 *
+	 * @param snapshot The completions to search.
+	 * @param text The already-entered text.  This may be <code>null</code>.
+	 * @param matcher The matcher.
+	 * @return A new, modifiable list of the matching completions.
+	 */
+	private static List<Completion> getCompletions(Snapshot snapshot,
+			String text, CompletionMatcher matcher) {
 
-			int index = Collections.binarySearch(completions, text, comparator);
-			if (index<0) { // No exact match
-				index = -index - 1;
-			}
-			else {
-				// If there are several overloads for the function being
-				// completed, Collections.binarySearch() will return the index
-				// of one of those overloads, but we must return all of them,
-				// so search backward until we find the first one.
-				int pos = index - 1;
-				while (pos>0 &&
-						comparator.compare(completions.get(pos), text)==0) {
-					retVal.add(completions.get(pos));
-					pos--;
+		if (text==null) {
+			return new ArrayList<Completion>();
+		}
+		if (matcher.isPrefixMatcher() || text.length()==0) {
+			return new ArrayList<Completion>(
+					snapshot.getIndex().getCompletionsStartingWith(text));
+		}
+
+		long textMask = Util.getCharMask(text);
+		long[] masks = snapshot.getCharMasks();
+		List<Completion> completions = snapshot.completions;
+		List<Completion> matches = new ArrayList<Completion>();
+		for (int i=0; i<masks.length; i++) {
+			if ((masks[i]&textMask)==textMask) {
+				Completion c = completions.get(i);
+				if (matcher.match(text, c.getInputText())!=
+						CompletionMatcher.NO_MATCH) {
+					matches.add(c);
 				}
 			}
+		}
+		return matches;
 
-			while (index<completions.size()) {
-				Completion c = completions.get(index);
-				if (Util.startsWithIgnoreCase(c.getInputText(), text)) {
-					retVal.add(c);
-					index++;
-				}
-				else {
-					break;
-				}
+	}
+
+
+	/**
+	 * Returns the current snapshot of this provider's completions, first
+	 * merging any completions added one at a time into it.
+	 *
+	 * @return The snapshot.
+	 * @see #mergePending()
+	 */
+	private Snapshot getSnapshot() {
+		if (hasPending) {
+			synchronized (writeLock) {
+				mergePending();
 			}
+		}
+		return snapshot;
+	}
 
+
+	/**
+	 * Sorts the completions added one at a time since the last call, and
+	 * publishes them merged with the current ones.  Callers must hold
+	 * {@link #writeLock}.
+	 */
+	private void mergePending() {
+		if (pending!=null) {
+			List<Completion> added = pending;
+			pending = null;
+			hasPending = false;
+			Collections.sort(added, SORT_COMPARATOR);
+			publish(merge(snapshot.completions, added));
+		}
+	}
+
+
+	/**
+	 * Merges two lists sorted by {@link #SORT_COMPARATOR}.
+	 *
+	 * @param l1 The first list.
+	 * @param l2 The second list.
+	 * @return The merged list.  On ties, elements of <code>l1</code> come
+	 *         first.
+	 */
+	static List<Completion> merge(List<Completion> l1, List<Completion> l2) {
+		int size1 = l1.size();
+		int size2 = l2.size();
+		List<Completion> merged = new ArrayList<Completion>(size1 + size2);
+		int i = 0;
+		int j = 0;
+		while (i<size1 && j<size2) {
+			Completion c1 = l1.get(i);
+			Completion c2 = l2.get(j);
+			if (SORT_COMPARATOR.compare(c1, c2)<=0) {
+				merged.add(c1);
+				i++;
+			}
+			else {
+				merged.add(c2);
+				j++;
+			}
 		}
+		merged.addAll(l1.subList(i, size1));
+		merged.addAll(l2.subList(j, size2));
+		return merged;
+	}
 
-		return retVal;
 
+	/**
+	 * Makes a list the current set of completions.  Callers must hold
+	 * {@link #writeLock}.
+	 *
+	 * @param list The new completions, sorted.  This list must not be
+	 *        referenced, let alone modified, by anyone else afterward.
+	 * @return The new snapshot.
+	 */
+	private Snapshot publish(List<Completion> list) {
+		Snapshot s = new Snapshot(list, indexFactory);
+		snapshot = s;
+		completions = s.completions;
+		return s;
 	}
 
 
@@ -216,13 +630,76 @@ public abstract class AbstractCompletionProvider
 	 * @see #addCompletions(List)
 	 */
 	public boolean removeCompletion(Completion c) {
-		// Don't just call completions.remove(c) as it'll be a linear search.
-		int index = Collections.binarySearch(completions, c);
-		if (index<0) {
-			return false;
+		synchronized (writeLock) {
+			mergePending();
+			// Don't just call completions.remove(c) as it'll be a linear
+			// search.
+			List<Completion> old = snapshot.completions;
+			int index = Collections.binarySearch(old, c, SORT_COMPARATOR);
+			if (index<0) {
+				return false;
+			}
+			List<Completion> list = new ArrayList<Completion>(old.size() - 1);
+			list.addAll(old.subList(0, index));
+			list.addAll(old.subList(index + 1, old.size()));
+			publish(list);
+			return true;
+		}
+	}
+
+
+	/**
+	 * Sets the factory used to create the index that finds completions
+	 * matching entered text.  For providers with very many completions, a
+	 * {@link TrieCompletionIndex#FACTORY} answers queries faster than the
+	 * default {@link SortedListCompletionIndex#FACTORY}.
+	 *
+	 * @param factory The factory.  This cannot be <code>null</code>.
+	 * @see #getCompletionIndexFactory()
+	 */
+	public void setCompletionIndexFactory(CompletionIndex.Factory factory) {
+		if (factory==null) {
+			throw new IllegalArgumentException("factory cannot be null");
+		}
+		synchronized (writeLock) {
+			indexFactory = factory;
+			mergePending();
+			publish(new ArrayList<Completion>(snapshot.completions));
+		}
+	}
+
+
+	/**
+	 * Replaces all completions in this provider.  This is meant for reloading
+	 * completions from a background thread: the new completions are sorted
+	 * and indexed on the calling thread, and become visible to readers all
+	 * at once.
+	 *
+	 * @param completions The new completions.  This cannot be
+	 *        <code>null</code>.
+	 * @throws IllegalArgumentException If a completion's provider isn't
+	 *         this <tt>CompletionProvider</tt>.
+	 * @see #clear()
+	 * @see #addCompletions(List)
+	 */
+	public void setCompletions(List<Completion> completions) {
+		List<Completion> sorted = new ArrayList<Completion>(completions);
+		Collections.sort(sorted, SORT_COMPARATOR);
+		checkSorted(sorted);
+		CompletionIndex.Factory factory = indexFactory;
+		Snapshot s = new Snapshot(sorted, factory);
+		s.getIndex(); // Build the index here rather than on first query
+		synchronized (writeLock) {
+			pending = null; // Replaced as well
+			hasPending = false;
+			if (factory==indexFactory) {
+				snapshot = s;
+				completions = s.completions;
+			}
+			else { // Index factory changed in the meantime
+				publish(sorted);
+			}
 		}
-		completions.remove(index);
-		return true;
 	}
 
 
@@ -245,4 +722,97 @@ public abstract class AbstractCompletionProvider
 	}
 
 
+	/**
+	 * Sorts completions case-insensitively by input text, then by their
+	 * natural order.
+	 */
+	private static class SortComparator implements Comparator<Completion>,
+														Serializable {
+
+		public int compare(Completion c1, Completion c2) {
+			int diff = String.CASE_INSENSITIVE_ORDER.compare(
+					c1.getInputText(), c2.getInputText());
+			return diff!=0 ? diff : c1.compareTo(c2);
+		}
+
+	}
+
+
+	/**
+	 * An immutable set of completions, along with its lazily-created index
+	 * and character masks.
+	 */
+	private static final class Snapshot {
+
+		private final List<Completion> completions;
+		private final CompletionIndex.Factory indexFactory;
+		private volatile CompletionIndex index;
+		private volatile long[] charMasks;
+
+		/**
+		 * The completions, if they were all loaded from a catalog.
+		 */
+		private final CompletionCatalog.CompletionList catalogCompletions;
+
+		/**
+		 * Constructor.
+		 *
+		 * @param completions The completions, sorted.  These are wrapped in
+		 *        an unmodifiable list.
+		 * @param indexFactory Creates the index.
+		 */
+		public Snapshot(List<Completion> completions,
+				CompletionIndex.Factory indexFactory) {
+			this.completions = Collections.unmodifiableList(completions);
+			this.indexFactory = indexFactory;
+			catalogCompletions =
+				completions instanceof CompletionCatalog.CompletionList ?
+					(CompletionCatalog.CompletionList)completions : null;
+		}
+
+		/**
+		 * Returns the index, creating it if necessary.  Two threads may race
+		 * to create it, which is harmless since indices are immutable.
+		 */
+		public CompletionIndex getIndex() {
+			CompletionIndex index = this.index;
+			if (index==null) {
+				index = indexFactory.createIndex(completions);
+				this.index = index;
+			}
+			return index;
+		}
+
+		/**
+		 * Returns the character mask of each completion's input text,
+		 * computing them if necessary.  The masks of completions loaded
+		 * from a catalog are read from it, so those completions aren't
+		 * created.
+		 *
+		 * @see Util#getCharMask(String)
+		 */
+		public long[] getCharMasks() {
+			long[] charMasks = this.charMasks;
+			if (charMasks==null) {
+				int count = completions.size();
+				charMasks = new long[count];
+				if (catalogCompletions!=null) {
+					for (int i=0; i<count; i++) {
+						charMasks[i] = catalogCompletions.getCharMask(i);
+					}
+				}
+				else {
+					for (int i=0; i<count; i++) {
+						charMasks[i] = Util.getCharMask(
+								completions.get(i).getInputText());
+					}
+				}
+				this.charMasks = charMasks;
+			}
+			return charMasks;
+		}
+
+	}
+
+
 }
\ No newline at end of file
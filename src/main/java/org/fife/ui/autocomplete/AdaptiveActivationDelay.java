@@ -0,0 +1,192 @@
+/*
+ * 10/17/2026
+ *
+ * AdaptiveActivationDelay.java - Tunes the auto-activation delay to the
+ * user's typing speed.
+ *
+ * This library is distributed under a modified BSD license.  See the included
+ * RSyntaxTextArea.License.txt file for details.
+ */
+package org.fife.ui.autocomplete;
+
+
+/**
+ * Computes an auto-activation delay from how fast the user types and how
+ * long the completion provider takes.  The popup window should appear once
+ * the user pauses, and what counts as a pause depends on the user: a delay
+ * a few times as long as their usual time between keystrokes.  Fast typists
+ * get a shorter delay, and slow ones don't get the popup in the middle of
+ * a word.  If computing completions blocks typing, the delay is lengthened
+ * by the time it takes, since a wasted computation costs that much.<p>
+ *
+ * Both times are exponentially weighted moving averages, so they follow the
+ * user as they speed up or slow down.  Times between keystrokes longer than
+ * the maximum delay are ignored, as those are pauses, not typing.
+ *
+ * @version 1.0
+ * @see AutoCompletion#setAutoActivationDelayAdaptive(boolean)
+ */
+class AdaptiveActivationDelay {
+
+	/**
+	 * The shortest delay computed.
+	 */
+	private int minDelay;
+
+	/**
+	 * The longest delay computed.
+	 */
+	private int maxDelay;
+
+	/**
+	 * The average time between keystrokes, in milliseconds, or
+	 * <code>-1</code> if it isn't known yet.
+	 */
+	private double interval;
+
+	/**
+	 * The average time taken to compute completions, in milliseconds, or
+	 * <code>-1</code> if it isn't known yet.
+	 */
+	private double latency;
+
+	/**
+	 * The time of the last keystroke, as returned by
+	 * <code>System.nanoTime()</code>, or <code>0</code> if there hasn't been
+	 * one yet.
+	 */
+	private long lastKeystroke;
+
+	/**
+	 * The weight of a new sample in the moving averages.
+	 */
+	private static final double WEIGHT				= 0.25;
+
+	/**
+	 * How many times the usual time between keystrokes counts as a pause.
+	 */
+	private static final double PAUSE_FACTOR		= 2;
+
+
+	/**
+	 * Constructor.
+	 *
+	 * @param minDelay The shortest delay to compute, in milliseconds.
+	 * @param maxDelay The longest delay to compute, in milliseconds.
+	 */
+	public AdaptiveActivationDelay(int minDelay, int maxDelay) {
+		setBounds(minDelay, maxDelay);
+		reset();
+	}
+
+
+	/**
+	 * Records how long computing completions took.
+	 *
+	 * @param nanos The time taken, in nanoseconds.
+	 */
+	public void completionsComputed(long nanos) {
+		latency = average(latency, nanos/1000000d);
+	}
+
+
+	/**
+	 * Adds a sample to a moving average.
+	 *
+	 * @param average The average, or <code>-1</code> if there are no
+	 *        samples yet.
+	 * @param sample The sample.
+	 * @return The new average.
+	 */
+	private static double average(double average, double sample) {
+		return average<0 ? sample : average + WEIGHT*(sample-average);
+	}
+
+
+	/**
+	 * Returns the delay to use.
+	 *
+	 * @param defaultDelay The delay to use (within the bounds) until the
+	 *        user's typing speed is known.
+	 * @param blocking Whether computing completions blocks typing.
+	 * @return The delay, in milliseconds.
+	 */
+	public int getDelay(int defaultDelay, boolean blocking) {
+		double delay = defaultDelay;
+		if (interval>=0) {
+			delay = PAUSE_FACTOR * interval;
+			if (blocking && latency>0) {
+				delay += latency;
+			}
+		}
+		return (int)Math.max(minDelay, Math.min(maxDelay, Math.round(delay)));
+	}
+
+
+	/**
+	 * Returns the longest delay computed.
+	 *
+	 * @return The longest delay, in milliseconds.
+	 * @see #getMinDelay()
+	 * @see #setBounds(int, int)
+	 */
+	public int getMaxDelay() {
+		return maxDelay;
+	}
+
+
+	/**
+	 * Returns the shortest delay computed.
+	 *
+	 * @return The shortest delay, in milliseconds.
+	 * @see #getMaxDelay()
+	 * @see #setBounds(int, int)
+	 */
+	public int getMinDelay() {
+		return minDelay;
+	}
+
+
+	/**
+	 * Records a keystroke.
+	 *
+	 * @param now The current time, as returned by
+	 *        <code>System.nanoTime()</code>.
+	 */
+	public void keystroke(long now) {
+		if (lastKeystroke!=0) {
+			double elapsed = (now-lastKeystroke)/1000000d;
+			if (elapsed<=maxDelay) {
+				interval = average(interval, elapsed);
+			}
+		}
+		lastKeystroke = now;
+	}
+
+
+	/**
+	 * Forgets everything measured, for example because the user is now
+	 * typing in another text component.
+	 */
+	public void reset() {
+		interval = latency = -1;
+		lastKeystroke = 0;
+	}
+
+
+	/**
+	 * Sets the range of delays computed.
+	 *
+	 * @param minDelay The shortest delay, in milliseconds.
+	 * @param maxDelay The longest delay, in milliseconds.  If this is less
+	 *        than <code>minDelay</code>, <code>minDelay</code> is used.
+	 * @see #getMinDelay()
+	 * @see #getMaxDelay()
+	 */
+	public void setBounds(int minDelay, int maxDelay) {
+		this.minDelay = Math.max(0, minDelay);
+		this.maxDelay = Math.max(this.minDelay, maxDelay);
+	}
+
+
+}
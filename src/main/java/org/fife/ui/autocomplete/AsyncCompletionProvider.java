@@ -0,0 +1,50 @@
+/*
+ * 10/17/2026
+ *
+ * AsyncCompletionProvider.java - A provider whose completions can be
+ * computed off the Event Dispatch Thread.
+ *
+ * This library is distributed under a modified BSD license.  See the included
+ * RSyntaxTextArea.License.txt file for details.
+ */
+package org.fife.ui.autocomplete;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import javax.swing.text.JTextComponent;
+
+
+/**
+ * A {@link CompletionProvider} that can compute its completions on a
+ * background thread.  Computing completions is split into two steps: first,
+ * on the Event Dispatch Thread, the provider captures everything it needs
+ * from the text component (usually just the already-entered text).  Then the
+ * returned task does the actual work, on whatever thread it is run on.<p>
+ *
+ * {@link AutoCompletion} runs these tasks on its completion executor, if
+ * one is set (see
+ * {@link AutoCompletion#setCompletionExecutor(java.util.concurrent.Executor)}),
+ * so a slow provider does not freeze typing.
+ *
+ * @version 1.0
+ * @see CompletionProviderBase
+ */
+public interface AsyncCompletionProvider extends CompletionProvider {
+
+
+	/**
+	 * Returns a task computing the completions for the text component's
+	 * current state.  This method is called on the Event Dispatch Thread.
+	 * The returned task may be run on any thread, and must not access the
+	 * text component, its document or any other Swing component.  It
+	 * returns the same completions {@link #getCompletions(JTextComponent)}
+	 * would have returned when this method was called.
+	 *
+	 * @param comp The text component.
+	 * @return The task.  This will not be <code>null</code>.
+	 */
+	public Callable<List<Completion>> createCompletionsTask(
+			JTextComponent comp);
+
+
+}
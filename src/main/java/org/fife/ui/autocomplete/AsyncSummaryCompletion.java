@@ -0,0 +1,48 @@
+/*
+ * 10/17/2026
+ *
+ * AsyncSummaryCompletion.java - A completion whose summary can be computed
+ * off the Event Dispatch Thread.
+ *
+ * This library is distributed under a modified BSD license.  See the included
+ * RSyntaxTextArea.License.txt file for details.
+ */
+package org.fife.ui.autocomplete;
+
+import java.util.concurrent.Future;
+
+
+/**
+ * A completion whose summary is expensive to compute, for example because it
+ * is read from a documentation store.  The description window displays a
+ * placeholder while the summary is computed, and displays the summary once
+ * it is available, so the UI doesn't block in the meantime.  If the user
+ * selects another completion first, the summary's computation is cancelled.
+ * <p>
+ *
+ * {@link #getSummary()} is still called where a summary is needed right
+ * away, and may simply wait for the result of
+ * {@link #getSummaryAsync()}.
+ *
+ * @version 1.0
+ * @see AutoCompletion#setShowDescWindow(boolean)
+ */
+public interface AsyncSummaryCompletion extends Completion {
+
+
+	/**
+	 * Starts computing the summary of this completion.  This method is
+	 * called on the Event Dispatch Thread, and should return quickly.
+	 *
+	 * @return The summary, as HTML, once computed.  This may be a future
+	 *         that is already done, for example if the summary is cached.
+	 *         Its value may be <code>null</code> if there is no summary.
+	 *         This will never be <code>null</code> itself.  It will be
+	 *         cancelled, with interruption, if the summary is no longer
+	 *         needed.
+	 * @see #getSummary()
+	 */
+	public Future<String> getSummaryAsync();
+
+
+}
@@ -16,12 +16,24 @@ import java.awt.Graphics;
 import java.awt.Insets;
 import java.awt.Window;
 import java.awt.event.ActionEvent;
+import java.io.IOException;
+import java.io.StringReader;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.ResourceBundle;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 import javax.swing.AbstractAction;
 import javax.swing.Action;
 import javax.swing.BorderFactory;
@@ -40,6 +52,10 @@ import javax.swing.border.AbstractBorder;
 import javax.swing.border.Border;
 import javax.swing.event.HyperlinkEvent;
 import javax.swing.event.HyperlinkListener;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.html.HTMLDocument;
+import javax.swing.text.html.HTMLEditorKit;
+import javax.swing.text.html.StyleSheet;
 
 import org.fife.ui.rsyntaxtextarea.PopupWindowDecorator;
 
@@ -64,6 +80,66 @@ class AutoCompleteDescWindow extends JWindow implements HyperlinkListener,
 	 */
 	private JEditorPane descArea;
 
+	/**
+	 * The document {@link #descArea} was created with.  Its style sheet,
+	 * tweaked to look like a tool tip, is shared by the documents of all
+	 * descriptions.  Since style sheets aren't thread safe, it is only
+	 * linked to documents on the EDT.
+	 */
+	private HTMLDocument templateDoc;
+
+	/**
+	 * Parses descriptions into documents on the EDT.
+	 */
+	private HTMLEditorKit kit;
+
+	/**
+	 * Parses descriptions into documents on the prerendering thread.
+	 */
+	private HTMLEditorKit prerenderKit;
+
+	/**
+	 * The parsed descriptions of recently displayed or prerendered
+	 * completions, so that showing one again only swaps the document of
+	 * {@link #descArea}.  This, like {@link #prerendering}, is only accessed
+	 * on the EDT.
+	 */
+	private Map<Completion, HTMLDocument> documents;
+
+	/**
+	 * The completions whose descriptions are being prerendered.
+	 */
+	private Set<Completion> prerendering;
+
+	/**
+	 * Prerenders descriptions for all description windows, on a single
+	 * low-priority thread, so that it never competes with computing
+	 * completions.  This is created lazily.
+	 */
+	private static ExecutorService prerenderExecutor;
+
+	/**
+	 * The placeholder displayed while a summary is being computed.  This is
+	 * created lazily.
+	 */
+	private HTMLDocument loadingDoc;
+
+	/**
+	 * The summary of an {@link AsyncSummaryCompletion} being computed for
+	 * {@link #pendingEntry}, or <code>null</code> if none is.
+	 */
+	private Future<String> pendingSummary;
+
+	/**
+	 * The history entry waiting for {@link #pendingSummary}.
+	 */
+	private HistoryEntry pendingEntry;
+
+	/**
+	 * Checks whether {@link #pendingSummary} is done.
+	 */
+	private Timer summaryTimer;
+
 	/**
 	 * The scroll pane that {@link #descArea} is in.
 	 */
@@ -125,6 +201,16 @@ class AutoCompleteDescWindow extends JWindow implements HyperlinkListener,
 	 */
 	private static final int INITIAL_TIMER_DELAY			= 120;
 
+	/**
+	 * The maximum number of parsed descriptions to keep.
+	 */
+	private static final int DOCUMENT_CACHE_SIZE			= 32;
+
+	/**
+	 * How often to check whether a summary being computed is done.
+	 */
+	private static final int SUMMARY_POLL_DELAY			= 50;
+
 	/**
 	 * The resource bundle name.
 	 */
@@ -150,6 +236,8 @@ class AutoCompleteDescWindow extends JWindow implements HyperlinkListener,
 
 		descArea = new JEditorPane("text/html", null);
 		TipUtil.tweakTipEditorPane(descArea);
+		templateDoc = (HTMLDocument)descArea.getDocument();
+		kit = (HTMLEditorKit)descArea.getEditorKit();
 		descArea.addHyperlinkListener(this);
 		scrollPane = new JScrollPane(descArea);
 		Border b = BorderFactory.createEmptyBorder();
@@ -198,10 +286,14 @@ class AutoCompleteDescWindow extends JWindow implements HyperlinkListener,
 
 		history = new ArrayList<HistoryEntry>(1); // Usually small
 		historyPos = -1;
+		documents = new LruCache<Completion, HTMLDocument>(
+												DOCUMENT_CACHE_SIZE);
+		prerendering = new HashSet<Completion>();
 
 		timerAction = new TimerAction();
 		timer = new Timer(INITIAL_TIMER_DELAY, timerAction);
 		timer.setRepeats(false);
+		summaryTimer = new Timer(SUMMARY_POLL_DELAY, new SummaryPollAction());
 
 	}
 
@@ -241,6 +333,29 @@ class AutoCompleteDescWindow extends JWindow implements HyperlinkListener,
 	}
 
 
+	/**
+	 * Stops waiting for the summary being computed, if any, and cancels its
+	 * computation.  Its history entry is left without a description, so the
+	 * summary is asked for again if the entry is displayed again.
+	 */
+	private void cancelPendingSummary() {
+		if (pendingSummary!=null) {
+			summaryTimer.stop();
+			pendingSummary.cancel(true);
+			pendingSummary = null;
+			pendingEntry = null;
+		}
+	}
+
+
+	/**
+	 * Discards all parsed descriptions.
+	 */
+	private void clearDocuments() {
+		documents.clear();
+	}
+
+
 	/**
 	 * Copies from the description text area, if it is visible and there is
 	 * a selection.
@@ -257,6 +372,72 @@ class AutoCompleteDescWindow extends JWindow implements HyperlinkListener,
 	}
 
 
+	/**
+	 * Parses a description.  This is called on the EDT.
+	 *
+	 * @param desc The description, as HTML.  If this is <code>null</code>,
+	 *        a "no description available" message is parsed instead.
+	 * @return The parsed description.
+	 */
+	private HTMLDocument createDocument(String desc) {
+		HTMLDocument doc = parseDocument(kit, desc);
+		linkStyles(doc);
+		return doc;
+	}
+
+
+	/**
+	 * Returns the executor descriptions are prerendered on.
+	 *
+	 * @return The executor.
+	 */
+	private static synchronized ExecutorService getPrerenderExecutor() {
+		if (prerenderExecutor==null) {
+			prerenderExecutor = Executors.newSingleThreadExecutor(
+					new ThreadFactory() {
+				public Thread newThread(Runnable r) {
+					Thread t = new Thread(r, "DescriptionPrerenderer");
+					t.setDaemon(true);
+					t.setPriority(Thread.MIN_PRIORITY);
+					return t;
+				}
+			});
+		}
+		return prerenderExecutor;
+	}
+
+
+	/**
+	 * Returns the parsed description of a completion, parsing it if it
+	 * isn't cached.
+	 *
+	 * @param completion The completion, or <code>null</code>.
+	 * @return The parsed description.
+	 */
+	private HTMLDocument getDocument(Completion completion) {
+		HTMLDocument doc = documents.get(completion);
+		if (doc==null) {
+			doc = createDocument(getSummary(completion));
+			documents.put(completion, doc);
+		}
+		return doc;
+	}
+
+
+	/**
+	 * Returns the placeholder displayed while a summary is being computed.
+	 *
+	 * @return The placeholder.
+	 */
+	private HTMLDocument getLoadingDocument() {
+		if (loadingDoc==null) {
+			loadingDoc = createDocument(
+					"<html><em>" + getString("Loading") + "</em>");
+		}
+		return loadingDoc;
+	}
+
+
 	/**
 	 * Returns the localized message for the specified key.
 	 *
@@ -271,6 +452,82 @@ class AutoCompleteDescWindow extends JWindow implements HyperlinkListener,
 	}
 
 
+	/**
+	 * Gives a parsed description the tool tip look of {@link #descArea}.
+	 * This is called on the EDT.
+	 *
+	 * @param doc The parsed description.
+	 */
+	private void linkStyles(HTMLDocument doc) {
+		doc.getStyleSheet().addStyleSheet(templateDoc.getStyleSheet());
+	}
+
+
+	/**
+	 * Parses a description into a document with a style sheet of its own.
+	 * This may be called off the EDT, as long as no other thread uses
+	 * <code>kit</code>.
+	 *
+	 * @param kit The kit to parse with.
+	 * @param desc The description, as HTML.  If this is <code>null</code>,
+	 *        a "no description available" message is parsed instead.
+	 * @return The parsed description.
+	 * @see #linkStyles(HTMLDocument)
+	 */
+	private HTMLDocument parseDocument(HTMLEditorKit kit, String desc) {
+
+		if (desc==null) {
+			desc = "<html><em>" + getString("NoDescAvailable") + "</em>";
+		}
+
+		HTMLDocument doc = new HTMLDocument(new StyleSheet());
+		// As JEditorPane.setText() does, so <meta> tags can't derail us
+		doc.putProperty("IgnoreCharsetDirective", Boolean.TRUE);
+		try {
+			kit.read(new StringReader(desc), doc, 0);
+		} catch (IOException ioe) { // Never happens with a StringReader
+			ioe.printStackTrace();
+		} catch (BadLocationException ble) { // Never happens
+			ble.printStackTrace();
+		}
+		return doc;
+
+	}
+
+
+	/**
+	 * Returns the summary of a completion.
+	 *
+	 * @param completion The completion, or <code>null</code>.
+	 * @return The summary, or <code>null</code> if there is none.
+	 */
+	private static String getSummary(Completion completion) {
+		return completion==null ? null : completion.getSummary();
+	}
+
+
+	/**
+	 * Returns a summary computed in the background.
+	 *
+	 * @param summary The summary.  This should be done.
+	 * @return The summary, or <code>null</code> if there is none or its
+	 *         computation failed.
+	 */
+	private static String getSummary(Future<String> summary) {
+		try {
+			return summary.get();
+		} catch (CancellationException ce) {
+			return null;
+		} catch (ExecutionException ee) {
+			ee.printStackTrace();
+			return null;
+		} catch (InterruptedException ie) { // Never happens
+			Thread.currentThread().interrupt();
+			return null;
+		}
+	}
+
+
 	/**
 	 * Called when a hyperlink is clicked.
 	 *
@@ -339,6 +596,68 @@ class AutoCompleteDescWindow extends JWindow implements HyperlinkListener,
 	}
 
 
+	/**
+	 * Parses the descriptions of completions the user is likely to select
+	 * next, so that displaying them is quick.  This is only done if the
+	 * parent auto-completion has an executor to compute completions off the
+	 * EDT, meaning completions are safe to use on other threads; otherwise
+	 * this method does nothing.  The descriptions are parsed on a
+	 * low-priority thread of their own, not on that executor.
+	 * {@link AsyncSummaryCompletion}s are skipped, since they compute their
+	 * summaries in the background anyway.  This is called on the EDT.
+	 *
+	 * @param completions The completions.
+	 * @see AutoCompletion#setCompletionExecutor(Executor)
+	 */
+	public void prerenderDescriptions(List<Completion> completions) {
+
+		if (ac.getCompletionExecutor()==null) {
+			return;
+		}
+		if (prerenderKit==null) {
+			prerenderKit = new HTMLEditorKit();
+		}
+
+		for (final Completion c : completions) {
+			if (c instanceof AsyncSummaryCompletion ||
+					documents.containsKey(c) || !prerendering.add(c)) {
+				continue;
+			}
+			getPrerenderExecutor().execute(new Runnable() {
+				public void run() {
+					HTMLDocument doc = null;
+					try {
+						doc = parseDocument(prerenderKit, getSummary(c));
+					} finally {
+						prerendered(c, doc);
+					}
+				}
+			});
+		}
+
+	}
+
+
+	/**
+	 * Caches a prerendered description.  This may be called off the EDT.
+	 *
+	 * @param c The completion.
+	 * @param doc Its parsed description, or <code>null</code> if parsing it
+	 *        failed.
+	 */
+	private void prerendered(final Completion c, final HTMLDocument doc) {
+		SwingUtilities.invokeLater(new Runnable() {
+			public void run() {
+				prerendering.remove(c);
+				if (doc!=null && !documents.containsKey(c)) {
+					linkStyles(doc);
+					documents.put(c, doc);
+				}
+			}
+		});
+	}
+
+
 	/**
 	 * Enables or disables the back and forward actions as appropriate.
 	 */
@@ -398,37 +717,24 @@ class AutoCompleteDescWindow extends JWindow implements HyperlinkListener,
 	 */
 	protected void setDescriptionFor(Completion item, String anchor,
 									boolean addToHistory) {
+		cancelPendingSummary(); // The user has moved on
 		timer.stop();
 		timerAction.setCompletion(item, anchor, addToHistory);
 		timer.start();
 	}
 
 
-	private void setDisplayedDesc(Completion completion, final String anchor,
+	private void setDisplayedDesc(Completion completion, String anchor,
 									boolean addToHistory) {
 
-		String desc = completion==null ? null : completion.getSummary();
-		if (desc==null) {
-			desc = "<html><em>" + getString("NoDescAvailable") + "</em>";
-		}
-		descArea.setText(desc);
-		if (anchor!=null) {
-			SwingUtilities.invokeLater(new Runnable() {
-				public void run() {
-					descArea.scrollToReference(anchor);
-				}
-			});
-		}
-		else {
-			descArea.setCaretPosition(0); // In case of scrolling
-		}
-
 		if (!addToHistory) {
 			// Remove everything first if this is going to be the only
 			// thing in history.
 			clearHistory();
 		}
-		addToHistory(new HistoryEntry(completion, desc, null));
+		HistoryEntry entry = new HistoryEntry(completion, null, anchor);
+		showEntry(entry);
+		addToHistory(entry);
 
 	}
 
@@ -439,12 +745,65 @@ class AutoCompleteDescWindow extends JWindow implements HyperlinkListener,
 	@Override
 	public void setVisible(boolean visible) {
 		if (!visible) {
+			cancelPendingSummary();
 			clearHistory();
+			clearDocuments(); // Summaries may be different next time
 		}
 		super.setVisible(visible);
 	}
 
 
+	/**
+	 * Displays the description of a history entry.  If the entry has no
+	 * description yet, it is looked up in the cache or computed.  If it is
+	 * the summary of an {@link AsyncSummaryCompletion} that isn't done, a
+	 * placeholder is displayed until it is.
+	 *
+	 * @param entry The history entry.
+	 */
+	private void showEntry(HistoryEntry entry) {
+
+		cancelPendingSummary();
+		Completion c = entry.completion;
+		if (entry.doc==null) {
+			if (c instanceof AsyncSummaryCompletion) {
+				entry.doc = documents.get(c);
+				if (entry.doc==null) {
+					Future<String> summary =
+							((AsyncSummaryCompletion)c).getSummaryAsync();
+					if (summary.isDone()) {
+						entry.doc = createDocument(getSummary(summary));
+						documents.put(c, entry.doc);
+					}
+					else {
+						pendingSummary = summary;
+						pendingEntry = entry;
+						summaryTimer.start();
+					}
+				}
+			}
+			else {
+				entry.doc = getDocument(c);
+			}
+		}
+
+		descArea.setDocument(entry.doc!=null ? entry.doc :
+									getLoadingDocument());
+		final String anchor = entry.anchor;
+		if (anchor!=null) {
+			SwingUtilities.invokeLater(new Runnable() {
+				public void run() {
+					descArea.scrollToReference(anchor);
+				}
+			});
+		}
+		else {
+			descArea.setCaretPosition(0); // In case of scrolling
+		}
+
+	}
+
+
 	/**
 	 * Callback for custom <code>ExternalURLHandler</code>s.
 	 *
@@ -463,7 +822,17 @@ class AutoCompleteDescWindow extends JWindow implements HyperlinkListener,
 	public void updateUI() {
 		SwingUtilities.updateComponentTreeUI(this);
 		// Update editor pane for new font, bg, selection colors, etc.
+		// Descriptions parsed before then are stale, so re-parse the one
+		// displayed.
+		HistoryEntry current = historyPos>-1 ? history.get(historyPos) : null;
+		cancelPendingSummary();
+		descArea.setDocument(templateDoc);
 		TipUtil.tweakTipEditorPane(descArea);
+		clearDocuments();
+		loadingDoc = null;
+		if (current!=null) {
+			setDisplayedDesc(current.completion, current.anchor, false);
+		}
 		scrollPane.setBackground(descArea.getBackground());
 		scrollPane.getViewport().setBackground(descArea.getBackground());
 		((JPanel)getContentPane()).setBorder(TipUtil.getToolTipBorder());
@@ -471,18 +840,19 @@ class AutoCompleteDescWindow extends JWindow implements HyperlinkListener,
 
 
 	/**
-	 * A completion and its cached summary text.
+	 * A completion and its parsed summary text.  The parsed summary is
+	 * <code>null</code> until it is known.
 	 */
 	private static class HistoryEntry {
 
 		public Completion completion;
-		public String summary;
+		public HTMLDocument doc;
 		public String anchor;
 
-		public HistoryEntry(Completion completion, String summary,
+		public HistoryEntry(Completion completion, HTMLDocument doc,
 									String anchor) {
 			this.completion = completion;
-			this.summary = summary;
+			this.doc = doc;
 			this.anchor = anchor;
 		}
 
@@ -500,6 +870,29 @@ class AutoCompleteDescWindow extends JWindow implements HyperlinkListener,
 	}
 
 
+	/**
+	 * Displays the summary being computed once it is done.
+	 */
+	private class SummaryPollAction extends AbstractAction {
+
+		public void actionPerformed(ActionEvent e) {
+			if (pendingSummary!=null && pendingSummary.isDone()) {
+				HistoryEntry entry = pendingEntry;
+				HTMLDocument doc = createDocument(getSummary(pendingSummary));
+				summaryTimer.stop();
+				pendingSummary = null;
+				pendingEntry = null;
+				documents.put(entry.completion, doc);
+				entry.doc = doc;
+				if (historyPos>-1 && history.get(historyPos)==entry) {
+					showEntry(entry);
+				}
+			}
+		}
+
+	}
+
+
 	/**
 	 * Action that actually updates the summary text displayed.
 	 */
@@ -542,14 +935,7 @@ class AutoCompleteDescWindow extends JWindow implements HyperlinkListener,
 		public void actionPerformed(ActionEvent e) {
 			if (historyPos>0) {
 				HistoryEntry pair = history.get(--historyPos);
-				descArea.setText(pair.summary);
-				if (pair.anchor!=null) {
-					//System.out.println("Scrolling to: " + pair.anchor);
-					descArea.scrollToReference(pair.anchor);
-				}
-				else {
-					descArea.setCaretPosition(0);
-				}
+				showEntry(pair);
 				setActionStates();
 			}
 		}
@@ -573,14 +959,7 @@ class AutoCompleteDescWindow extends JWindow implements HyperlinkListener,
 		public void actionPerformed(ActionEvent e) {
 			if (history!=null && historyPos<history.size()-1) {
 				HistoryEntry pair = history.get(++historyPos);
-				descArea.setText(pair.summary);
-				if (pair.anchor!=null) {
-					//System.out.println("Scrolling to: " + pair.anchor);
-					descArea.scrollToReference(pair.anchor);
-				}
-				else {
-					descArea.setCaretPosition(0);
-				}
+				showEntry(pair);
 				setActionStates();
 			}
 		}
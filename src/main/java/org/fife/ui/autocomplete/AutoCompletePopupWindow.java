@@ -22,11 +22,15 @@ import java.awt.event.InputEvent;
 import java.awt.event.KeyEvent;
 import java.awt.event.MouseEvent;
 import java.awt.event.MouseListener;
+import java.text.MessageFormat;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.ResourceBundle;
 import javax.swing.AbstractAction;
 import javax.swing.Action;
 import javax.swing.ActionMap;
 import javax.swing.InputMap;
+import javax.swing.JLabel;
 import javax.swing.JList;
 import javax.swing.JPanel;
 import javax.swing.JScrollPane;
@@ -35,6 +39,7 @@ import javax.swing.KeyStroke;
 import javax.swing.ListCellRenderer;
 import javax.swing.ListSelectionModel;
 import javax.swing.SwingUtilities;
+import javax.swing.border.EmptyBorder;
 import javax.swing.event.CaretEvent;
 import javax.swing.event.CaretListener;
 import javax.swing.event.ListSelectionEvent;
@@ -81,6 +86,17 @@ class AutoCompletePopupWindow extends JWindow implements CaretListener, ListSele
 	 */
 	protected CompletionListModel model;
 
+	/**
+	 * Displays status messages below the list, such as that completions are
+	 * still being computed.  This is hidden when there is no message.
+	 */
+	protected JLabel statusLabel;
+
+	/**
+	 * The resource bundle for this window.
+	 */
+	private ResourceBundle bundle;
+
 	/**
 	 * A hack to work around the fact that we clear our completion model (and
 	 * our selection) when hiding the completion window. This allows us to still
@@ -142,6 +158,11 @@ class AutoCompletePopupWindow extends JWindow implements CaretListener, ListSele
 	 */
 	protected static final String SUBSTANCE_LIST_UI = "org.pushingpixels.substance.internal.ui.SubstanceListUI";
 
+	/**
+	 * The resource bundle name.
+	 */
+	private static final String MSG = "org.fife.ui.autocomplete.AutoCompletePopupWindow";
+
 	/**
 	 * Constructor.
 	 *
@@ -181,6 +202,10 @@ class AutoCompletePopupWindow extends JWindow implements CaretListener, ListSele
 		listScrollPane.setCorner(str, corner);
 
 		contentPane.add(listScrollPane);
+		statusLabel = new JLabel();
+		statusLabel.setBorder(new EmptyBorder(2, 3, 2, 3));
+		statusLabel.setVisible(false);
+		contentPane.add(statusLabel, BorderLayout.SOUTH);
 		setContentPane(contentPane);
 		applyComponentOrientation(o);
 
@@ -206,15 +231,9 @@ class AutoCompletePopupWindow extends JWindow implements CaretListener, ListSele
 			if (line != lastLine) {
 				lastLine = -1;
 				setVisible(false);
-			} else
-				try {
-					ac.isCaretUpdate = true;
-					doAutocomplete();
-				} finally {
-					ac.isCaretUpdate = false;
-				}
-				
-				
+			} else {
+				doAutocomplete();
+			}
 		} else if (AutoCompletion.getDebug()) {
 			Thread.dumpStack();
 		}
@@ -272,6 +291,20 @@ class AutoCompletePopupWindow extends JWindow implements CaretListener, ListSele
 		return isShowing() ? (Completion) list.getSelectedValue() : lastSelection;
 	}
 
+	/**
+	 * Returns the localized message for the specified key.
+	 *
+	 * @param key
+	 *            The key.
+	 * @return The localized message.
+	 */
+	protected String getString(String key) {
+		if (bundle == null) {
+			bundle = ResourceBundle.getBundle(MSG);
+		}
+		return bundle.getString(key);
+	}
+
 	/**
 	 * Inserts the currently selected completion.
 	 *
@@ -455,6 +488,24 @@ class AutoCompletePopupWindow extends JWindow implements CaretListener, ListSele
 	public void mouseReleased(MouseEvent e) {
 	}
 
+	/**
+	 * Asks the description window to prepare the descriptions of the
+	 * completions next to the selected one, since the user is likely to
+	 * select one of them next.
+	 *
+	 * @param index The index of the selected completion.
+	 */
+	private void prerenderDescriptions(int index) {
+		List<Completion> neighbors = new ArrayList<Completion>(2);
+		if (index > 0) {
+			neighbors.add((Completion) model.getElementAt(index - 1));
+		}
+		if (index > -1 && index < model.getSize() - 1) {
+			neighbors.add((Completion) model.getElementAt(index + 1));
+		}
+		descWindow.prerenderDescriptions(neighbors);
+	}
+
 	/**
 	 * Positions the description window relative to the completion choices
 	 * window. We assume there is room on one side of the other for this entire
@@ -648,15 +699,23 @@ class AutoCompletePopupWindow extends JWindow implements CaretListener, ListSele
 	}
 
 	/**
-	 * Sets the completions to display in the choices list. The first completion
-	 * is selected.
+	 * Sets the completions to display in the choices list. If the selected
+	 * completion is still displayed (as is usually the case when the user
+	 * narrows down the choices by typing), it stays selected; otherwise the
+	 * first completion is selected.
 	 *
 	 * @param completions
 	 *            The completions to display.
 	 */
       public void setCompletions(List<Completion> completions) {
+		Object selection = list.getSelectedValue();
 		model.setContents(completions);
-		selectFirstItem();
+		if (selection!=null && list.getSelectedValue()==selection) {
+			list.ensureIndexIsVisible(list.getSelectedIndex());
+		}
+		else {
+			selectFirstItem();
+		}
 	}
 
 	/**
@@ -689,6 +748,60 @@ class AutoCompletePopupWindow extends JWindow implements CaretListener, ListSele
 		
 	}
 
+	/**
+	 * Toggles whether this window indicates that completions are still being
+	 * computed. While they are, the list shows what is known so far, for
+	 * example the previous completions narrowed down to the entered text.
+	 *
+	 * @param loading
+	 *            Whether completions are being computed.
+	 * @see #setStatusText(String)
+	 */
+	public void setLoading(boolean loading) {
+		setStatusText(loading ? getString("Loading") : null);
+	}
+
+	/**
+	 * Displays how many completions each of several providers has below the
+	 * completion list, for example while the user cycles through them.
+	 *
+	 * @param counts
+	 *            The number of completions of each provider.
+	 * @param current
+	 *            The index of the provider whose completions are displayed.
+	 * @see #setStatusText(String)
+	 */
+	public void setProviderCounts(int[] counts, int current) {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < counts.length; i++) {
+			if (i > 0) {
+				sb.append(" | ");
+			}
+			if (i == current) {
+				sb.append("<b>").append(counts[i]).append("</b>");
+			} else {
+				sb.append(counts[i]);
+			}
+		}
+		setStatusText("<html>" + MessageFormat.format(getString("ProviderCounts"), sb));
+	}
+
+	/**
+	 * Sets the text displayed below the completion list.
+	 *
+	 * @param text
+	 *            The text, or <code>null</code> to hide the status area.
+	 * @see #setLoading(boolean)
+	 */
+	public void setStatusText(String text) {
+		boolean visible = text != null;
+		statusLabel.setText(text);
+		if (visible != statusLabel.isVisible()) {
+			statusLabel.setVisible(visible);
+			getContentPane().validate();
+		}
+	}
+
 	/**
 	 * Sets the location of this window to be "good" relative to the specified
 	 * rectangle. That rectangle should be the location of the text component's
@@ -793,6 +906,7 @@ class AutoCompletePopupWindow extends JWindow implements CaretListener, ListSele
 			if (!visible) { // Do after super.setVisible(false)
 				lastSelection = (Completion) list.getSelectedValue();
 				model.clear();
+				setStatusText(null);
 			}
 
 			// Must set descWindow's visibility one way or the other each time,
@@ -828,6 +942,7 @@ class AutoCompletePopupWindow extends JWindow implements CaretListener, ListSele
 			Object value = list.getSelectedValue();
 			if (value != null && descWindow != null) {
 				descWindow.setDescriptionFor((Completion) value);
+				prerenderDescriptions(list.getSelectedIndex());
 				positionDescWindow();
 			}
 		}
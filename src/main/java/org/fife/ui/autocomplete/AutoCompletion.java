@@ -11,8 +11,9 @@ package org.fife.ui.autocomplete;
 import java.awt.*;
 import java.awt.event.*;
 import java.beans.*;
-import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
 import javax.swing.*;
 import javax.swing.event.*;
 import javax.swing.text.*;
@@ -55,7 +56,10 @@ public class AutoCompletion {
 	/**
 	 * allows to suppress reloading of completions when typing
 	 * 
+	 * @deprecated Completions are now cached for the word being typed, no
+	 *             matter what triggers a refresh; this field is ignored.
 	 */
+	@Deprecated
 	public boolean isCaretUpdate = false;
 
 	/**
@@ -99,6 +103,58 @@ public class AutoCompletion {
 	 */
 	private CompletionProvider provider;
 
+	/**
+	 * Runs the tasks of {@link AsyncCompletionProvider}s. If this is
+	 * <code>null</code>, completions are computed on the EDT.
+	 */
+	private Executor completionExecutor;
+
+	/**
+	 * Identifies the latest request for completions made to
+	 * {@link #completionExecutor}. Results of any other request are stale and
+	 * discarded.
+	 */
+	private int completionRequest;
+
+	/**
+	 * Whether the latest request for completions is still being computed.
+	 */
+	private boolean completionsLoading;
+
+	/**
+	 * When the latest request for completions was made, as returned by
+	 * <code>System.nanoTime()</code>.
+	 */
+	private long completionRequestTime;
+
+	/**
+	 * Whether the latest request for completions is still being computed,
+	 * and was made speculatively, before auto-activation. Its results are
+	 * only cached, not displayed, unless the request is taken over by
+	 * {@link #refreshPopupWindow()}.
+	 */
+	private boolean speculativeRequest;
+
+	/**
+	 * The already-entered text of the latest request for completions.
+	 */
+	private String requestText;
+
+	/**
+	 * The offset of {@link #requestText}.
+	 */
+	private int requestWordStart;
+
+	/**
+	 * The completions for the word being typed, by prefix.
+	 */
+	private PrefixCompletionCache completionCache;
+
+	/**
+	 * The completions displayed in the popup window, while it's visible.
+	 */
+	private List<Completion> displayedCompletions;
+
 	/**
 	 * The renderer to use for the completion choices. If this is
 	 * <code>null</code>, then a default renderer is used.
@@ -260,6 +316,7 @@ public class AutoCompletion {
 	 */
 	public AutoCompletion(CompletionProvider provider) {
 
+		completionCache = new PrefixCompletionCache();
 		setChoicesWindowSize(350, 200);
 		setDescriptionWindowSize(350, 250);
 
@@ -291,6 +348,107 @@ public class AutoCompletion {
 		listeners.add(AutoCompletionListener.class, l);
 	}
 
+	/**
+	 * Discards the results of any pending request for completions.
+	 */
+	private void cancelCompletionRequest() {
+		completionRequest++;
+		speculativeRequest = false;
+		if (completionsLoading) {
+			completionsLoading = false;
+			if (popupWindow != null) {
+				popupWindow.setLoading(false);
+			}
+		}
+	}
+
+	/**
+	 * Returns whether computing completions blocks the EDT.
+	 * 
+	 * @return Whether computing completions blocks the EDT.
+	 */
+	private boolean isCompletionBlocking() {
+		return completionExecutor == null || !(provider instanceof AsyncCompletionProvider);
+	}
+
+	/**
+	 * Called on the EDT when a request for completions completes.
+	 * 
+	 * @param request
+	 *            The request.
+	 * @param text
+	 *            The already-entered text when the request was made.
+	 * @param wordStart
+	 *            The offset of the already-entered text when the request was
+	 *            made.
+	 * @param completions
+	 *            The completions, or <code>null</code> if computing them
+	 *            failed. In that case, the popup window stops indicating
+	 *            that completions are loading, and the caller reports the
+	 *            failure.
+	 */
+	private void completionsComputed(int request, String text, int wordStart, List<Completion> completions) {
+
+		if (request != completionRequest || textComponent == null) {
+			return; // Superseded or cancelled
+		}
+		autoActivationListener.completionsComputed(System.nanoTime() - completionRequestTime);
+		if (speculativeRequest) {
+			speculativeRequest = false;
+			// Keep them for auto-activation, if the user is still there
+			String current = provider.getAlreadyEnteredText(textComponent);
+			if (completions != null && isRequestStillGood(current, getWordStart(current))) {
+				completionCache.put(text, textComponent.getDocument(), wordStart, completions,
+						Util.isPrefixMonotone(provider));
+			}
+			return;
+		}
+		completionsLoading = false;
+		if (popupWindow != null) {
+			popupWindow.setLoading(false);
+		}
+		if (completions == null) {
+			return;
+		}
+
+		// The completions are still good if the user has only typed further
+		// into the same word; they're a superset of what's needed, unless
+		// the provider says otherwise.  In that case, ask it again.
+		Document doc = textComponent.getDocument();
+		completionCache.put(text, doc, wordStart, completions, Util.isPrefixMonotone(provider));
+		String current = provider.getAlreadyEnteredText(textComponent);
+		completions = completionCache.get(current, doc, getWordStart(current));
+		if (completions != null) {
+			showCompletions(current, completions);
+		} else if (isPopupVisible()) {
+			refreshPopupWindow();
+		}
+
+	}
+
+	/**
+	 * Returns whether the completions of the latest request will include
+	 * those for some already-entered text, that is, whether the text is the
+	 * same word as that of the request, typed at least as far. If the
+	 * provider isn't prefix-monotone, the text must be that of the request.
+	 * 
+	 * @param text
+	 *            The already-entered text. This may be <code>null</code>.
+	 * @param wordStart
+	 *            The offset of the already-entered text.
+	 * @return Whether the request's completions are good for the text.
+	 */
+	private boolean isRequestStillGood(String text, int wordStart) {
+		if (text == null || wordStart != requestWordStart) {
+			return false;
+		}
+		String request = requestText == null ? "" : requestText;
+		if (!Util.isPrefixMonotone(provider)) {
+			return text.equals(request);
+		}
+		return Util.startsWithIgnoreCase(text, request);
+	}
+
 	/**
 	 * Displays the popup window. Hosting applications can call this method to
 	 * programmatically begin an auto-completion operation.
@@ -330,9 +488,34 @@ public class AutoCompletion {
 	 * 
 	 * @return The delay, in milliseconds.
 	 * @see #setAutoActivationDelay(int)
+	 * @see #isAutoActivationDelayAdaptive()
 	 */
 	public int getAutoActivationDelay() {
-		return autoActivationListener.timer.getDelay();
+		return autoActivationListener.delay;
+	}
+
+	/**
+	 * Returns the longest auto-activation delay used when the delay is
+	 * adaptive.
+	 * 
+	 * @return The longest delay, in milliseconds.
+	 * @see #setAutoActivationDelayBounds(int, int)
+	 * @see #getMinAutoActivationDelay()
+	 */
+	public int getMaxAutoActivationDelay() {
+		return autoActivationListener.adaptiveDelay.getMaxDelay();
+	}
+
+	/**
+	 * Returns the shortest auto-activation delay used when the delay is
+	 * adaptive.
+	 * 
+	 * @return The shortest delay, in milliseconds.
+	 * @see #setAutoActivationDelayBounds(int, int)
+	 * @see #getMaxAutoActivationDelay()
+	 */
+	public int getMinAutoActivationDelay() {
+		return autoActivationListener.adaptiveDelay.getMinDelay();
 	}
 
 	/**
@@ -346,6 +529,17 @@ public class AutoCompletion {
 		return autoCompleteSingleChoices;
 	}
 
+	/**
+	 * Returns the executor used to compute completions off the EDT.
+	 * 
+	 * @return The executor, or <code>null</code> if completions are computed
+	 *         on the EDT.
+	 * @see #setCompletionExecutor(Executor)
+	 */
+	public Executor getCompletionExecutor() {
+		return completionExecutor;
+	}
+
 	/**
 	 * Returns the completion provider.
 	 * 
@@ -503,6 +697,18 @@ public class AutoCompletion {
 		return trigger;
 	}
 
+	/**
+	 * Returns the offset of the already-entered text in the document.
+	 * 
+	 * @param text
+	 *            The already-entered text. This may be <code>null</code>.
+	 * @return The offset.
+	 */
+	private int getWordStart(String text) {
+		int dot = textComponent.getCaretPosition();
+		return text == null ? dot : dot - text.length();
+	}
+
 	/**
 	 * Hides any child windows being displayed by the auto-completion system.
 	 * 
@@ -510,6 +716,7 @@ public class AutoCompletion {
 	 */
 	public boolean hideChildWindows() {
 		// return hidePopupWindow() || hideToolTipWindow();
+		cancelCompletionRequest();
 		boolean res = hidePopupWindow();
 		res |= hideParameterCompletionPopups();
 		return res;
@@ -709,6 +916,17 @@ public class AutoCompletion {
 		return autoActivationEnabled;
 	}
 
+	/**
+	 * Returns whether the auto-activation delay adapts to the user's typing
+	 * speed.
+	 * 
+	 * @return Whether the delay is adaptive.
+	 * @see #setAutoActivationDelayAdaptive(boolean)
+	 */
+	public boolean isAutoActivationDelayAdaptive() {
+		return autoActivationListener.adaptive;
+	}
+
 	/**
 	 * Returns whether auto-completion is enabled.
 	 * 
@@ -754,6 +972,19 @@ public class AutoCompletion {
 		return parameterAssistanceEnabled;
 	}
 
+	/**
+	 * Caches completions the completion provider returned for the text at the
+	 * caret, so {@link #refreshPopupWindow()} doesn't ask for them again.
+	 * 
+	 * @param completions
+	 *            The completions.
+	 */
+	void putCompletions(List<Completion> completions) {
+		String text = provider.getAlreadyEnteredText(textComponent);
+		completionCache.put(text, textComponent.getDocument(), getWordStart(text), completions,
+				Util.isPrefixMonotone(provider));
+	}
+
 	/**
 	 * Returns whether the completion popup window is visible.
 	 * 
@@ -770,12 +1001,17 @@ public class AutoCompletion {
 	 * popup is hidden, it is made visible and made to display the completions.
 	 * If there are some completions and the popup is visible, its list is
 	 * updated to the current set of completions.
+	 * <p>
+	 * 
+	 * Completions are cached for the word being typed, so the provider is
+	 * only asked again once the user moves to another word, the document is
+	 * modified elsewhere, the popup window is hidden or the trigger key is
+	 * pressed. Providers that aren't prefix-monotone (see
+	 * {@link CompletionProviderBase#isPrefixMonotone()}) are asked again
+	 * each time the already-entered text changes.
 	 * 
 	 * @return The current line number of the caret.
 	 */
-
-	private List<Completion> completionsMemento = null;
-
 	protected int refreshPopupWindow() {
 
 		// A return value of null => don't suggest completions
@@ -797,14 +1033,152 @@ public class AutoCompletion {
 			}
 		}
 
-		final List<Completion> completions;
-		final List<Completion> allCompletions;
-		if (completionsMemento == null || !isCaretUpdate) {
-			allCompletions = provider.getCompletions(textComponent);
-			completionsMemento = allCompletions;
-		} else
-			allCompletions = completionsMemento;
-		completions = limitTo(text, allCompletions);
+		Document doc = textComponent.getDocument();
+		int wordStart = getWordStart(text);
+		List<Completion> completions = completionCache.get(text, doc, wordStart);
+		if (completions == null) {
+			if (completionExecutor != null && provider instanceof AsyncCompletionProvider) {
+				if (speculativeRequest && isRequestStillGood(text, wordStart)) {
+					// Already being computed; display the results this time
+					speculativeRequest = false;
+					completionsLoading = true;
+				} else {
+					requestCompletions(text, wordStart, false);
+				}
+				return getLineOfCaret();
+			}
+			cancelCompletionRequest();
+			long start = System.nanoTime();
+			completions = provider.getCompletions(textComponent);
+			autoActivationListener.completionsComputed(System.nanoTime() - start);
+			completionCache.put(text, doc, wordStart, completions, Util.isPrefixMonotone(provider));
+			completions = completionCache.get(text, doc, wordStart);
+		}
+		return showCompletions(text, completions);
+
+	}
+
+	/**
+	 * Asks the completion provider for completions on the completion
+	 * executor, before auto-activation does, if the user has typed an
+	 * auto-activating character. This hides the provider's latency behind
+	 * the auto-activation delay: if the user is still typing the same word
+	 * once the delay expires, the completions are already known, or at least
+	 * on their way.
+	 */
+	private void prefetchCompletions() {
+
+		if (isCompletionBlocking() || isPopupVisible()) {
+			return;
+		}
+		String text = provider.getAlreadyEnteredText(textComponent);
+		if (text == null || (text.length() == 0 && isHideOnNoText())) {
+			return;
+		}
+
+		int wordStart = getWordStart(text);
+		if ((completionsLoading || speculativeRequest) && isRequestStillGood(text, wordStart)) {
+			return; // Already on their way
+		}
+		if (completionCache.get(text, textComponent.getDocument(), wordStart) != null) {
+			return;
+		}
+		requestCompletions(text, wordStart, true);
+
+	}
+
+	/**
+	 * Asks the completion provider for completions on the completion
+	 * executor. The results are displayed when they are available, unless the
+	 * user has moved on by then. In the meantime, a visible popup window
+	 * narrows down what it displays to the entered text, and indicates that
+	 * it's loading.
+	 * 
+	 * @param text
+	 *            The already-entered text.
+	 * @param wordStart
+	 *            The offset of the already-entered text.
+	 * @param speculative
+	 *            Whether to only cache the results, rather than display them.
+	 *            Nothing indicates that these are loading.
+	 */
+	private void requestCompletions(final String text, final int wordStart, boolean speculative) {
+
+		final int request = ++completionRequest;
+		final Callable<List<Completion>> task = ((AsyncCompletionProvider) provider)
+				.createCompletionsTask(textComponent);
+
+		requestText = text;
+		requestWordStart = wordStart;
+		speculativeRequest = speculative;
+		completionRequestTime = System.nanoTime();
+		completionsLoading = !speculative;
+		if (!speculative && isPopupVisible() && displayedCompletions != null) {
+			String prefix = text == null ? "" : text;
+			showCompletions(text, PrefixCompletionCache.filter(displayedCompletions, prefix));
+		}
+
+		completionExecutor.execute(new Runnable() {
+
+			public void run() {
+				List<Completion> completions = null;
+				Throwable error = null;
+				try {
+					completions = task.call();
+				} catch (Exception e) {
+					error = e;
+				} catch (Error e) {
+					error = e;
+				}
+				final List<Completion> result = completions;
+				final Throwable failure = error;
+				SwingUtilities.invokeLater(new Runnable() {
+
+					public void run() {
+						completionsComputed(request, text, wordStart, result);
+						if (failure != null) {
+							// Fail on the EDT, as computing them there would
+							rethrow(failure);
+						}
+					}
+				});
+			}
+		});
+
+	}
+
+	/**
+	 * Throws an exception thrown while computing completions on the
+	 * completion executor.
+	 * 
+	 * @param t
+	 *            The exception.
+	 */
+	static void rethrow(Throwable t) {
+		if (t instanceof RuntimeException) {
+			throw (RuntimeException) t;
+		}
+		if (t instanceof Error) {
+			throw (Error) t;
+		}
+		throw new RuntimeException("Computing completions failed", t);
+	}
+
+	/**
+	 * Displays the completions matching the already-entered text. If there
+	 * are none, the popup window is hidden; if there is just one, it may be
+	 * inserted right away.
+	 * 
+	 * @param text
+	 *            The already-entered text.
+	 * @param completions
+	 *            The matching completions.
+	 * @return The current line number of the caret, or <code>-1</code> if the
+	 *         popup window couldn't be positioned.
+	 */
+	private int showCompletions(String text, final List<Completion> completions) {
+
+		int textLen = text == null ? 0 : text.length();
 
 		int count = completions == null ? 0 : completions.size();
 
@@ -813,6 +1187,8 @@ public class AutoCompletion {
 			reSetPopupWindowStuff();
 
 			popupWindow.setCompletions(completions);
+			popupWindow.setLoading(completionsLoading);
+			displayedCompletions = completions;
 
 			if (!popupWindow.isVisible()) {
 				Rectangle r = null;
@@ -849,26 +1225,26 @@ public class AutoCompletion {
 
 	}
 
-	private List<Completion> limitTo(String start, List<Completion> completions) {
-		List<Completion> result = new LinkedList<Completion>();
-
-		for (Completion c : completions)
-			if (c.getInputText().toLowerCase().startsWith(start.toLowerCase()))
-				result.add(c);
-
-		return result;
-	}
-
+	/**
+	 * Makes sure the popup window exists and belongs to the text component's
+	 * current parent window. The popup window, its list and its description
+	 * window are long-lived: they are only created the first time they're
+	 * needed and re-created when the text component moves to another window.
+	 * Refreshing the popup, even when switching between completion providers
+	 * (as {@link RoundRobinAutoCompletion} does), only swaps the contents of
+	 * its list.
+	 */
 	public void reSetPopupWindowStuff() {
-		// that's the only contextual change to the original AutoCompletion
-		// implementation
-		// because otherwise with round robin completion providers windows don't
-		// get replaced
-		// but accumulate
+
 		if (popupWindow != null) {
-			popupWindow.setVisible(false); // needed to undo key bindings
-			popupWindowListener.uninstall(popupWindow);
-			popupWindow.dispose();
+			if (popupWindow.getOwner() == parentWindow) {
+				ComponentOrientation o = getTextComponentOrientation();
+				if (popupWindow.getComponentOrientation() != o) {
+					popupWindow.applyComponentOrientation(o);
+				}
+				return;
+			}
+			disposePopupWindow();
 		}
 
 		popupWindow = new AutoCompletePopupWindow(parentWindow, this);
@@ -890,6 +1266,18 @@ public class AutoCompletion {
 
 	}
 
+	/**
+	 * Hides and disposes of the popup window, if there is one.
+	 */
+	private void disposePopupWindow() {
+		if (popupWindow != null) {
+			popupWindow.setVisible(false); // needed to undo key bindings
+			popupWindowListener.uninstall(popupWindow);
+			popupWindow.dispose();
+			popupWindow = null;
+		}
+	}
+
 	/**
 	 * Removes a listener interested in popup window events from this instance.
 	 *
@@ -901,6 +1289,22 @@ public class AutoCompletion {
 		listeners.remove(AutoCompletionListener.class, l);
 	}
 
+	/**
+	 * Displays how many completions each of several providers has, if the
+	 * popup window is visible.
+	 * 
+	 * @param counts
+	 *            The number of completions of each provider.
+	 * @param current
+	 *            The index of the provider whose completions are displayed.
+	 * @see AutoCompletePopupWindow#setProviderCounts(int[], int)
+	 */
+	void setProviderCounts(int[] counts, int current) {
+		if (isPopupVisible()) {
+			popupWindow.setProviderCounts(counts, current);
+		}
+	}
+
 	/**
 	 * Sets the delay between when the user types a character and when the code
 	 * completion popup should automatically appear (if applicable).
@@ -911,10 +1315,58 @@ public class AutoCompletion {
 	 */
 	public void setAutoActivationDelay(int ms) {
 		ms = Math.max(0, ms);
+		autoActivationListener.delay = ms;
 		autoActivationListener.timer.stop();
 		autoActivationListener.timer.setInitialDelay(ms);
 	}
 
+	/**
+	 * Sets whether the auto-activation delay adapts to the user's typing
+	 * speed. If it does, the delay is a small multiple of the usual time
+	 * between the user's keystrokes, so that the popup window appears when
+	 * they pause rather than in the middle of a word. If computing
+	 * completions blocks typing, the time it takes is added. The delay stays
+	 * within {@link #setAutoActivationDelayBounds(int, int) bounds}, and is
+	 * {@link #setAutoActivationDelay(int) the fixed delay} until the user's
+	 * typing speed is known. Typing speed is measured again for each text
+	 * component this is installed on.
+	 * <p>
+	 * 
+	 * Also, while completions requested on the
+	 * {@link #setCompletionExecutor(Executor) completion executor} are still
+	 * being computed, auto-activation waits rather than making another
+	 * request.
+	 * 
+	 * @param adaptive
+	 *            Whether the delay is adaptive. This is <code>false</code> by
+	 *            default.
+	 * @see #isAutoActivationDelayAdaptive()
+	 */
+	public void setAutoActivationDelayAdaptive(boolean adaptive) {
+		if (adaptive != autoActivationListener.adaptive) {
+			autoActivationListener.adaptive = adaptive;
+			autoActivationListener.adaptiveDelay.reset();
+			autoActivationListener.timer.stop();
+			autoActivationListener.timer.setInitialDelay(autoActivationListener.delay);
+		}
+	}
+
+	/**
+	 * Sets the range of auto-activation delays used when the delay is
+	 * adaptive.
+	 * 
+	 * @param min
+	 *            The shortest delay, in milliseconds. The default is 50.
+	 * @param max
+	 *            The longest delay, in milliseconds. The default is 600.
+	 * @see #getMinAutoActivationDelay()
+	 * @see #getMaxAutoActivationDelay()
+	 * @see #setAutoActivationDelayAdaptive(boolean)
+	 */
+	public void setAutoActivationDelayBounds(int min, int max) {
+		autoActivationListener.adaptiveDelay.setBounds(min, max);
+	}
+
 	/**
 	 * Toggles whether auto-activation is enabled. Note that auto-activation
 	 * also depends on auto-completion itself being enabled.
@@ -963,6 +1415,29 @@ public class AutoCompletion {
 		autoCompleteSingleChoices = autoComplete;
 	}
 
+	/**
+	 * Sets the executor used to compute completions off the EDT. If one is
+	 * set, and the completion provider is an {@link AsyncCompletionProvider},
+	 * a slow provider no longer freezes typing: the popup window is displayed
+	 * or updated once the completions are known, and results that are stale
+	 * by then (because the user moved elsewhere or asked again) are
+	 * discarded. An executor with a single thread is usually sufficient.
+	 * <p>
+	 * 
+	 * If auto-activation is enabled, completions are requested as soon as
+	 * the user types an auto-activating character, so they're usually known
+	 * by the time the auto-activation delay expires.
+	 * 
+	 * @param executor
+	 *            The executor, or <code>null</code> to compute completions on
+	 *            the EDT. This is the default.
+	 * @see #getCompletionExecutor()
+	 */
+	public void setCompletionExecutor(Executor executor) {
+		cancelCompletionRequest();
+		completionExecutor = executor;
+	}
+
 	/**
 	 * Sets the completion provider being used.
 	 * 
@@ -976,6 +1451,8 @@ public class AutoCompletion {
 			throw new IllegalArgumentException("provider cannot be null");
 		}
 		this.provider = provider;
+		cancelCompletionRequest();
+		completionCache.clear();
 		if (isHideOnCompletionProviderChange()) {
 			hidePopupWindow(); // In case new choices should be displayed.
 		}
@@ -1072,7 +1549,9 @@ public class AutoCompletion {
 
 	/**
 	 * Sets the default list cell renderer to use when a completion provider
-	 * does not supply its own.
+	 * does not supply its own. For providers with many completions, a
+	 * {@link FastCompletionCellRenderer} scrolls much faster than the default
+	 * HTML-based renderer.
 	 * 
 	 * @param renderer
 	 *            The renderer to use. If this is <code>null</code>, a default
@@ -1216,7 +1695,9 @@ public class AutoCompletion {
 
 		if (textComponent != null) {
 
+			cancelCompletionRequest();
 			hidePopupWindow(); // Unregisters listeners, actions, etc.
+			completionCache.clear();
 
 			uninstallTriggerKey();
 
@@ -1241,9 +1722,8 @@ public class AutoCompletion {
 
 			UIManager.removePropertyChangeListener(lafListener);
 
+			disposePopupWindow();
 			textComponent = null;
-			popupWindowListener.uninstall(popupWindow);
-			popupWindow = null;
 
 		}
 
@@ -1289,21 +1769,31 @@ public class AutoCompletion {
 	 * completion popup.
 	 */
 	private class AutoActivationListener extends FocusAdapter
-			implements DocumentListener, CaretListener, ActionListener {
+			implements DocumentListener, CaretListener, ActionListener, Runnable {
 
 		private Timer timer;
 		private boolean justInserted;
+		private int delay;
+		private boolean adaptive;
+		private AdaptiveActivationDelay adaptiveDelay;
 
 		public AutoActivationListener() {
-			timer = new Timer(200, this);
+			delay = 200;
+			timer = new Timer(delay, this);
 			timer.setRepeats(false);
+			adaptiveDelay = new AdaptiveActivationDelay(50, 600);
 		}
 
 		public void actionPerformed(ActionEvent e) {
+			if (adaptive && completionsLoading) {
+				timer.restart(); // Try again once they're computed
+				return;
+			}
 			doCompletion();
 		}
 
 		public void addTo(JTextComponent tc) {
+			adaptiveDelay.reset(); // A new text component, maybe a new user
 			tc.addFocusListener(this);
 			tc.getDocument().addDocumentListener(this);
 			tc.addCaretListener(this);
@@ -1321,6 +1811,12 @@ public class AutoCompletion {
 			// Ignore
 		}
 
+		public void completionsComputed(long nanos) {
+			if (adaptive) {
+				adaptiveDelay.completionsComputed(nanos);
+			}
+		}
+
 		@Override
 		public void focusLost(FocusEvent e) {
 			timer.stop();
@@ -1330,9 +1826,17 @@ public class AutoCompletion {
 		public void insertUpdate(DocumentEvent e) {
 			justInserted = false;
 			if (isAutoCompleteEnabled() && isAutoActivationEnabled() && e.getLength() == 1) {
+				if (adaptive) {
+					adaptiveDelay.keystroke(System.nanoTime());
+					timer.setInitialDelay(adaptiveDelay.getDelay(delay, isCompletionBlocking()));
+				}
 				if (provider.isAutoActivateOkay(textComponent)) {
 					timer.restart();
 					justInserted = true;
+					if (!isCompletionBlocking()) {
+						// After the caret has moved past the insertion
+						SwingUtilities.invokeLater(this);
+					}
 				} else {
 					timer.stop();
 				}
@@ -1353,6 +1857,12 @@ public class AutoCompletion {
 			timer.stop();
 		}
 
+		public void run() {
+			if (timer.isRunning() && textComponent != null) { // Not moved away
+				prefetchCompletions();
+			}
+		}
+
 	}
 
 	/**
@@ -1363,6 +1873,7 @@ public class AutoCompletion {
 
 		public void actionPerformed(ActionEvent e) {
 			if (isAutoCompleteEnabled()) {
+				completionCache.clear(); // Explicit request, ask the provider
 				refreshPopupWindow();
 			} else if (oldTriggerAction != null) {
 				oldTriggerAction.actionPerformed(e);
@@ -1465,6 +1976,8 @@ public class AutoCompletion {
 
 		@Override
 		public void componentHidden(ComponentEvent e) {
+			completionCache.clear();
+			displayedCompletions = null;
 			fireAutoCompletionEvent(AutoCompletionEvent.Type.POPUP_HIDDEN);
 		}
 
@@ -1521,6 +2034,7 @@ public class AutoCompletion {
 			if (parentWindow != oldParentWindow) {
 				if (oldParentWindow != null) {
 					parentWindowListener.removeFrom(oldParentWindow);
+					disposePopupWindow(); // Owned by the old window
 				}
 				if (parentWindow != null) {
 					parentWindowListener.addTo(parentWindow);
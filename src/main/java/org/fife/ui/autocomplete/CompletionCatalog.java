@@ -0,0 +1,1160 @@
+/*
+ * 10/17/2026
+ *
+ * CompletionCatalog.java - A precompiled, memory-mapped set of completions.
+ *
+ * This library is distributed under a modified BSD license.  See the included
+ * RSyntaxTextArea.License.txt file for details.
+ */
+package org.fife.ui.autocomplete;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParser;
+import javax.xml.parsers.SAXParserFactory;
+import org.xml.sax.SAXException;
+
+
+/**
+ * A set of completions precompiled into a compact binary file, which loads
+ * much faster than the XML it is usually {@link #convertXML(File, File)
+ * converted} from.  The file is memory-mapped, and completions are only
+ * created as they are first needed, so opening even a very large catalog
+ * takes next to no time.<p>
+ *
+ * The file holds a header, a table of the offsets of the records, a table of
+ * the offsets of the strings, the strings, and the records.  Each distinct
+ * string (name, type, description, ...) is stored only once, as a
+ * length-prefixed UTF-8 byte sequence, and records refer to strings by their
+ * index in the string table.  Records are also length-prefixed, and are
+ * stored in the order {@link AbstractCompletionProvider} keeps its
+ * completions in, so they never need to be sorted when loaded.  Each record
+ * starts with the {@link Util#getCharMask(String) character mask} of its
+ * completion's input text, so providers with a fuzzy matcher can rule most
+ * completions out without creating them.  All numbers are big-endian.  The
+ * structure of the whole file is checked when it is opened.<p>
+ *
+ * Only the completion types created from <code>CompletionXml.dtd</code> XML
+ * can be stored: {@link BasicCompletion}s, {@link VariableCompletion}s,
+ * {@link FunctionCompletion}s (and subclasses with the same constructor as
+ * <code>FunctionCompletion</code>), and {@link MarkupTagCompletion}s.
+ * Properties that XML can't specify, such as icons and relevance, are not
+ * stored.<p>
+ *
+ * Completions read from a catalog are flyweights.  They only hold their
+ * name, type and where they are defined, and decode their descriptions,
+ * summaries and parameters from the mapped file whenever these are asked
+ * for.  Values set on them after loading take precedence over the
+ * catalog's.  Listing all completions, as is done when the already-entered
+ * text is empty, still creates every one of them.
+ *
+ * @version 1.0
+ * @see DefaultCompletionProvider#loadFromCatalog(File)
+ */
+public final class CompletionCatalog {
+
+	/**
+	 * The mapped file.  Only absolute reads are done, so this may be read by
+	 * several threads at once.
+	 */
+	private ByteBuffer buf;
+
+	/**
+	 * The number of completions.
+	 */
+	private int completionCount;
+
+	/**
+	 * The number of strings.
+	 */
+	private int stringCount;
+
+	/**
+	 * The strings decoded so far.  Threads may race to decode a string,
+	 * which is harmless.
+	 */
+	private String[] strings;
+
+	/**
+	 * The class loader to use when loading custom
+	 * <code>FunctionCompletion</code> classes.  This may be
+	 * <code>null</code>.
+	 */
+	private ClassLoader classLoader;
+
+	/**
+	 * The factories for custom <code>FunctionCompletion</code> classes, by
+	 * class name, or <code>null</code> if a class can't be used.
+	 */
+	private Map<String, FunctionCompletionFactory> functionFactories;
+
+	/**
+	 * Whether a function completion factory has failed to create a
+	 * completion yet.  Only the first failure is reported.  This is guarded
+	 * by {@link #functionFactories}.
+	 */
+	private boolean functionFactoryFailureReported;
+
+	private char paramStartChar;
+	private char paramEndChar;
+	private String paramSeparator;
+
+	private static final int MAGIC				= 0x41434154; // "ACAT"
+	private static final int VERSION			= 2;
+	private static final int HEADER_SIZE		= 24;
+
+	private static final byte KIND_BASIC		= 0;
+	private static final byte KIND_VARIABLE		= 1;
+	private static final byte KIND_FUNCTION		= 2;
+	private static final byte KIND_TAG			= 3;
+
+	private static final int NO_STRING			= -1;
+	private static final int NO_PARAMS			= -1;
+
+	/**
+	 * The size of the length and character mask before each record's kind.
+	 */
+	private static final int RECORD_PREFIX_SIZE	= 12;
+
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+
+	/**
+	 * Constructor.
+	 *
+	 * @param buf The catalog's contents.
+	 * @param cl The class loader to use, or <code>null</code>.
+	 * @throws IOException If the contents aren't a catalog.
+	 */
+	private CompletionCatalog(ByteBuffer buf, ClassLoader cl)
+			throws IOException {
+		this.buf = buf;
+		if (buf.capacity()<HEADER_SIZE || buf.getInt(0)!=MAGIC) {
+			throw new IOException("Not a completion catalog");
+		}
+		if (buf.getInt(4)!=VERSION) {
+			throw new IOException("Unsupported catalog version: " +
+					buf.getInt(4));
+		}
+		paramStartChar = buf.getChar(8);
+		paramEndChar = buf.getChar(10);
+		stringCount = buf.getInt(16);
+		completionCount = buf.getInt(20);
+		validate();
+		strings = new String[stringCount];
+		paramSeparator = getString(buf.getInt(12));
+		classLoader = cl;
+		functionFactories = new HashMap<String, FunctionCompletionFactory>();
+	}
+
+
+	/**
+	 * Checks that a range of bytes lies within the catalog.
+	 *
+	 * @param pos The start of the range.
+	 * @param length The length of the range.
+	 * @param what What is being checked, for the error message.
+	 * @throws IOException If the range doesn't lie within the catalog.
+	 */
+	private void checkRange(long pos, long length, String what)
+			throws IOException {
+		if (pos<0 || length<0 || pos+length>buf.capacity()) {
+			throw new IOException("Corrupt completion catalog: " + what +
+					" out of bounds");
+		}
+	}
+
+
+	/**
+	 * Checks that a string index stored in the catalog is valid.
+	 *
+	 * @param pos The position of the index.
+	 * @param what What is being checked, for the error message.
+	 * @throws IOException If the index isn't valid.
+	 */
+	private void checkString(int pos, String what) throws IOException {
+		int index = buf.getInt(pos);
+		if (index!=NO_STRING && (index<0 || index>=stringCount)) {
+			throw new IOException("Corrupt completion catalog: " + what +
+					" refers to string " + index);
+		}
+	}
+
+
+	/**
+	 * Converts an XML file describing completions, which should validate
+	 * against <code>CompletionXml.dtd</code>, to a catalog.
+	 *
+	 * @param xml The XML file.
+	 * @param catalog The catalog file to write.
+	 * @throws IOException If an IO error occurs, or the XML is invalid.
+	 * @see #convertXML(InputStream, ClassLoader, OutputStream)
+	 */
+	public static void convertXML(File xml, File catalog) throws IOException {
+		InputStream in = new BufferedInputStream(new FileInputStream(xml));
+		try {
+			OutputStream out = new FileOutputStream(catalog);
+			try {
+				convertXML(in, null, out);
+			} finally {
+				out.close();
+			}
+		} finally {
+			in.close();
+		}
+	}
+
+
+	/**
+	 * Converts XML describing completions, which should validate against
+	 * <code>CompletionXml.dtd</code>, to a catalog.
+	 *
+	 * @param xml The XML to read.  This is not closed.
+	 * @param cl The class loader to use when loading any custom
+	 *        {@link FunctionCompletion} class defined in the XML.  This may
+	 *        be <code>null</code>.
+	 * @param out The stream to write the catalog to.  This is not closed.
+	 * @throws IOException If an IO error occurs, or the XML is invalid.
+	 * @see #convertXML(File, File)
+	 */
+	public static void convertXML(InputStream xml, ClassLoader cl,
+			OutputStream out) throws IOException {
+		SAXParserFactory factory = SAXParserFactory.newInstance();
+		factory.setValidating(true);
+		CompletionXMLParser handler = new CompletionXMLParser(
+				new DefaultCompletionProvider(), cl);
+		try {
+			SAXParser saxParser = factory.newSAXParser();
+			saxParser.parse(new UncloseableInputStream(xml), handler);
+		} catch (SAXException se) {
+			throw new IOException(se.toString());
+		} catch (ParserConfigurationException pce) {
+			throw new IOException(pce.toString());
+		}
+		write(handler.getCompletions(), handler.getParamStartChar(),
+				handler.getParamSeparator(), handler.getParamEndChar(), out);
+	}
+
+
+	/**
+	 * Creates the completion stored in a record.  Except for custom
+	 * <code>FunctionCompletion</code> classes, which know nothing about
+	 * catalogs, completions only hold their name, type and where they are
+	 * defined, which are usually shared with other completions.
+	 * Descriptions, summaries and parameters are decoded from the catalog
+	 * each time they are asked for.
+	 *
+	 * @param index The index of the record.
+	 * @param provider The provider of the completion.
+	 * @return The completion.
+	 */
+	private Completion createCompletion(int index,
+			CompletionProvider provider) {
+
+		int pos = buf.getInt(HEADER_SIZE + 4*index) + RECORD_PREFIX_SIZE;
+		byte kind = buf.get(pos++);
+
+		switch (kind) {
+
+			case KIND_BASIC:
+				return new CatalogBasicCompletion(this, provider, pos);
+
+			case KIND_VARIABLE:
+				return new CatalogVariableCompletion(this, provider, pos);
+
+			case KIND_FUNCTION:
+				String className = getString(buf.getInt(pos));
+				FunctionCompletion fc = null;
+				if (className!=null) {
+					fc = createFunctionCompletion(provider, className,
+							getString(buf.getInt(pos + 4)),
+							getString(buf.getInt(pos + 8)));
+				}
+				if (fc==null) {
+					return new CatalogFunctionCompletion(this, provider, pos);
+				}
+				fc.setShortDescription(decodeString(buf.getInt(pos + 12)));
+				fc.setDefinedIn(getString(buf.getInt(pos + 16)));
+				fc.setReturnValueDescription(
+						decodeString(buf.getInt(pos + 20)));
+				fc.setParams(readParams(pos + 24));
+				return fc;
+
+			case KIND_TAG:
+				return new CatalogTagCompletion(this, provider, pos);
+
+			default:
+				throw new InternalError("Unexpected record kind: " + kind);
+
+		}
+
+	}
+
+
+	/**
+	 * Creates a function completion of a custom class.  If the class can't
+	 * be used, or its factory fails, the error is only reported once.
+	 *
+	 * @param provider The provider of the completion.
+	 * @param className The name of the custom class.
+	 * @param name The name of the function.
+	 * @param returnType The return type of the function.
+	 * @return The completion, or <code>null</code> if the class can't be
+	 *         used for this function.
+	 */
+	private FunctionCompletion createFunctionCompletion(
+			CompletionProvider provider, String className, String name,
+			String returnType) {
+
+		FunctionCompletionFactory factory;
+		synchronized (functionFactories) {
+			if (functionFactories.containsKey(className)) {
+				factory = functionFactories.get(className);
+			}
+			else {
+				factory = CompletionXMLParser.getFunctionCompletionFactory(
+						className, classLoader);
+				functionFactories.put(className, factory);
+			}
+		}
+
+		if (factory!=null) {
+			try {
+				return factory.createFunctionCompletion(provider, name,
+						returnType);
+			} catch (RuntimeException re) {
+				// Report this once, not for every function
+				boolean report;
+				synchronized (functionFactories) {
+					report = !functionFactoryFailureReported;
+					functionFactoryFailureReported = true;
+				}
+				if (report) {
+					re.printStackTrace();
+				}
+			}
+		}
+		return null;
+
+	}
+
+
+	/**
+	 * Decodes a string from the string table, without keeping it.  This is
+	 * used for long strings, such as descriptions, that are rarely shown
+	 * and rarely shared.
+	 *
+	 * @param index The index of the string, or {@link #NO_STRING}.
+	 * @return The string, or <code>null</code> for {@link #NO_STRING}.
+	 * @see #getString(int)
+	 */
+	private String decodeString(int index) {
+		if (index==NO_STRING) {
+			return null;
+		}
+		String str = strings[index];
+		if (str==null) {
+			int pos = buf.getInt(HEADER_SIZE + 4*completionCount + 4*index);
+			byte[] bytes = new byte[buf.getInt(pos)];
+			ByteBuffer b = buf.duplicate();
+			b.position(pos + 4);
+			b.get(bytes);
+			str = new String(bytes, UTF8);
+		}
+		return str;
+	}
+
+
+	/**
+	 * Returns the character mask of a completion's input text, without
+	 * creating the completion.
+	 *
+	 * @param index The index of the completion.
+	 * @return The mask.
+	 * @see Util#getCharMask(String)
+	 */
+	long getCharMask(int index) {
+		return buf.getLong(buf.getInt(HEADER_SIZE + 4*index) + 4);
+	}
+
+
+	/**
+	 * Returns the number of completions in this catalog.
+	 *
+	 * @return The number of completions.
+	 */
+	public int getCompletionCount() {
+		return completionCount;
+	}
+
+
+	/**
+	 * Returns the completions in this catalog.  The list is sorted the way
+	 * {@link AbstractCompletionProvider} keeps its completions, and each
+	 * completion is only created when it is first read.  Reading the list is
+	 * thread-safe, and always returns the same instance for an index.
+	 *
+	 * @param provider The provider the completions belong to.
+	 * @return The completions.  This list cannot be modified.
+	 */
+	public List<Completion> getCompletions(CompletionProvider provider) {
+		return new CompletionList(this, provider);
+	}
+
+
+	/**
+	 * Returns the parameter end character stored in this catalog.
+	 *
+	 * @return The character, or 0 if none was stored.
+	 */
+	public char getParamEndChar() {
+		return paramEndChar;
+	}
+
+
+	/**
+	 * Returns the parameter separator stored in this catalog.
+	 *
+	 * @return The separator, or <code>null</code> if none was stored.
+	 */
+	public String getParamSeparator() {
+		return paramSeparator;
+	}
+
+
+	/**
+	 * Returns the parameter start character stored in this catalog.
+	 *
+	 * @return The character, or 0 if none was stored.
+	 */
+	public char getParamStartChar() {
+		return paramStartChar;
+	}
+
+
+	/**
+	 * Returns a string from the string table, keeping it so each completion
+	 * using it shares the same instance.  This is used for short strings,
+	 * such as names and types.
+	 *
+	 * @param index The index of the string, or {@link #NO_STRING}.
+	 * @return The string, or <code>null</code> for {@link #NO_STRING}.
+	 * @see #decodeString(int)
+	 */
+	private String getString(int index) {
+		String str = decodeString(index);
+		if (str!=null) {
+			strings[index] = str;
+		}
+		return str;
+	}
+
+
+	/**
+	 * Memory-maps a catalog file.
+	 *
+	 * @param file The file.
+	 * @return The catalog.
+	 * @throws IOException If an IO error occurs, or the file isn't a
+	 *         catalog.
+	 * @see #open(File, ClassLoader)
+	 */
+	public static CompletionCatalog open(File file) throws IOException {
+		return open(file, null);
+	}
+
+
+	/**
+	 * Memory-maps a catalog file.
+	 *
+	 * @param file The file.
+	 * @param cl The class loader to use when loading custom
+	 *        {@link FunctionCompletion} classes.  This may be
+	 *        <code>null</code> if the default is to be used.
+	 * @return The catalog.
+	 * @throws IOException If an IO error occurs, or the file isn't a
+	 *         catalog.
+	 */
+	public static CompletionCatalog open(File file, ClassLoader cl)
+			throws IOException {
+		RandomAccessFile raf = new RandomAccessFile(file, "r");
+		try {
+			FileChannel channel = raf.getChannel();
+			MappedByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY,
+					0, channel.size());
+			try {
+				return new CompletionCatalog(buf, cl);
+			} catch (IOException ioe) {
+				throw new IOException(ioe.getMessage() + ": " + file);
+			}
+		} finally {
+			raf.close(); // The mapping stays valid
+		}
+	}
+
+
+	/**
+	 * Reads a parameter from a list of parameters.
+	 *
+	 * @param pos The position of the list.
+	 * @param index The index of the parameter.
+	 * @return The parameter.
+	 */
+	private ParameterizedCompletion.Parameter readParam(int pos, int index) {
+		pos += 4 + 13*index;
+		ParameterizedCompletion.Parameter param =
+			new ParameterizedCompletion.Parameter(
+					getString(buf.getInt(pos)),
+					getString(buf.getInt(pos + 4)),
+					buf.get(pos + 12)!=0);
+		param.setDescription(decodeString(buf.getInt(pos + 8)));
+		return param;
+	}
+
+
+	/**
+	 * Returns the number of parameters in a list of parameters.
+	 *
+	 * @param pos The position of the list.
+	 * @return The number of parameters, or {@link #NO_PARAMS} if the list is
+	 *         <code>null</code>.
+	 */
+	private int readParamCount(int pos) {
+		return buf.getInt(pos);
+	}
+
+
+	/**
+	 * Reads a list of parameters.
+	 *
+	 * @param pos The position of the list.
+	 * @return The parameters, or <code>null</code> if the list is
+	 *         <code>null</code>.
+	 */
+	private List<ParameterizedCompletion.Parameter> readParams(int pos) {
+		int count = readParamCount(pos);
+		if (count==NO_PARAMS) {
+			return null;
+		}
+		List<ParameterizedCompletion.Parameter> params =
+				new ArrayList<ParameterizedCompletion.Parameter>(count);
+		for (int i=0; i<count; i++) {
+			params.add(readParam(pos, i));
+		}
+		return params;
+	}
+
+
+	/**
+	 * Checks the structure of this catalog, so that reading it later can't
+	 * fail.  Every table, string and record must lie within the file, and
+	 * records must refer to existing strings.
+	 *
+	 * @throws IOException If the catalog is corrupt.
+	 */
+	private void validate() throws IOException {
+
+		if (stringCount<0 || completionCount<0) {
+			throw new IOException("Corrupt completion catalog: bad counts");
+		}
+		long tablesEnd = HEADER_SIZE + 4L*completionCount + 4L*stringCount;
+		checkRange(HEADER_SIZE, tablesEnd - HEADER_SIZE, "offset tables");
+		checkString(12, "parameter separator");
+
+		int stringTable = HEADER_SIZE + 4*completionCount;
+		for (int i=0; i<stringCount; i++) {
+			int pos = buf.getInt(stringTable + 4*i);
+			String what = "string " + i;
+			checkRange(pos, 4, what);
+			checkRange(pos + 4L, buf.getInt(pos), what);
+			if (pos<tablesEnd) {
+				throw new IOException("Corrupt completion catalog: " + what +
+						" overlaps the offset tables");
+			}
+		}
+
+		for (int i=0; i<completionCount; i++) {
+			int pos = buf.getInt(HEADER_SIZE + 4*i);
+			String what = "record " + i;
+			checkRange(pos, RECORD_PREFIX_SIZE + 1, what);
+			int length = buf.getInt(pos);
+			checkRange(pos + 4L, length, what);
+			if (pos<tablesEnd || length<RECORD_PREFIX_SIZE - 4 + 1) {
+				throw new IOException("Corrupt completion catalog: " + what +
+						" is malformed");
+			}
+			validateRecord(pos + RECORD_PREFIX_SIZE, pos + 4 + length, what);
+		}
+
+	}
+
+
+	/**
+	 * Checks a list of parameters.
+	 *
+	 * @param pos The position of the list.
+	 * @param end The end of the record holding the list.
+	 * @param what What is being checked, for the error message.
+	 * @return The position after the list.
+	 * @throws IOException If the list is corrupt.
+	 */
+	private int validateParams(int pos, int end, String what)
+			throws IOException {
+		checkRange(pos, 4, what);
+		int count = buf.getInt(pos);
+		pos += 4;
+		if (count==NO_PARAMS) {
+			return pos;
+		}
+		if (count<0 || 13L*count>end-pos) {
+			throw new IOException("Corrupt completion catalog: " + what +
+					" has a bad parameter count");
+		}
+		for (int i=0; i<count; i++) {
+			checkString(pos, what);
+			checkString(pos + 4, what);
+			checkString(pos + 8, what);
+			pos += 13;
+		}
+		return pos;
+	}
+
+
+	/**
+	 * Checks the body of a record.
+	 *
+	 * @param pos The position of the record's kind.
+	 * @param end The end of the record.
+	 * @param what What is being checked, for the error message.
+	 * @throws IOException If the record is corrupt.
+	 */
+	private void validateRecord(int pos, int end, String what)
+			throws IOException {
+
+		byte kind = buf.get(pos++);
+		int stringFields;
+		switch (kind) {
+			case KIND_BASIC:
+			case KIND_TAG:
+				stringFields = 3;
+				break;
+			case KIND_VARIABLE:
+				stringFields = 4;
+				break;
+			case KIND_FUNCTION:
+				stringFields = 6;
+				break;
+			default:
+				throw new IOException("Corrupt completion catalog: " + what +
+						" is of unknown kind " + kind);
+		}
+
+		if (4*stringFields>end-pos) {
+			throw new IOException("Corrupt completion catalog: " + what +
+					" is truncated");
+		}
+		for (int i=0; i<stringFields; i++) {
+			checkString(pos, what);
+			pos += 4;
+		}
+		if (kind==KIND_FUNCTION || kind==KIND_TAG) {
+			pos = validateParams(pos, end, what);
+		}
+		if (pos>end) {
+			throw new IOException("Corrupt completion catalog: " + what +
+					" is truncated");
+		}
+
+	}
+
+
+	/**
+	 * Writes completions to a catalog.
+	 *
+	 * @param completions The completions.  They need not be sorted.
+	 * @param paramStartChar The parameter start character to store, or 0
+	 *        for none.
+	 * @param paramSeparator The parameter separator to store, or
+	 *        <code>null</code> for none.
+	 * @param paramEndChar The parameter end character to store, or 0 for
+	 *        none.
+	 * @param out The stream to write to.  This is not closed.
+	 * @throws IOException If an IO error occurs.
+	 * @throws IllegalArgumentException If a completion is of a type that
+	 *         can't be stored.
+	 * @see #convertXML(InputStream, ClassLoader, OutputStream)
+	 */
+	public static void write(List<Completion> completions,
+			char paramStartChar, String paramSeparator, char paramEndChar,
+			OutputStream out) throws IOException {
+
+		List<Completion> sorted = new ArrayList<Completion>(completions);
+		Collections.sort(sorted, AbstractCompletionProvider.SORT_COMPARATOR);
+
+		StringTable strings = new StringTable();
+		int separator = strings.add(paramSeparator);
+
+		// Records are encoded first, to know the strings and the offsets
+		int count = sorted.size();
+		int[] recordOffsets = new int[count];
+		ByteArrayOutputStream records = new ByteArrayOutputStream();
+		DataOutputStream recordsOut = new DataOutputStream(records);
+		ByteArrayOutputStream record = new ByteArrayOutputStream();
+		DataOutputStream recordOut = new DataOutputStream(record);
+		for (int i=0; i<count; i++) {
+			Completion c = sorted.get(i);
+			record.reset();
+			recordOut.writeLong(Util.getCharMask(c.getInputText()));
+			writeRecord(c, strings, recordOut);
+			recordOffsets[i] = recordsOut.size();
+			recordsOut.writeInt(record.size());
+			record.writeTo(recordsOut);
+		}
+
+		ByteArrayOutputStream stringData = new ByteArrayOutputStream();
+		DataOutputStream stringsOut = new DataOutputStream(stringData);
+		int[] stringOffsets = new int[strings.size()];
+		for (int i=0; i<stringOffsets.length; i++) {
+			byte[] bytes = strings.get(i).getBytes(UTF8);
+			stringOffsets[i] = stringsOut.size();
+			stringsOut.writeInt(bytes.length);
+			stringsOut.write(bytes);
+		}
+
+		int stringsStart = HEADER_SIZE + 4*count + 4*stringOffsets.length;
+		int recordsStart = stringsStart + stringsOut.size();
+
+		DataOutputStream dout = new DataOutputStream(
+				new BufferedOutputStream(out));
+		dout.writeInt(MAGIC);
+		dout.writeInt(VERSION);
+		dout.writeChar(paramStartChar);
+		dout.writeChar(paramEndChar);
+		dout.writeInt(separator);
+		dout.writeInt(stringOffsets.length);
+		dout.writeInt(count);
+		for (int offset : recordOffsets) {
+			dout.writeInt(recordsStart + offset);
+		}
+		for (int offset : stringOffsets) {
+			dout.writeInt(stringsStart + offset);
+		}
+		stringData.writeTo(dout);
+		records.writeTo(dout);
+		dout.flush();
+
+	}
+
+
+	/**
+	 * Writes a list of parameters.
+	 *
+	 * @param params The parameters.  This may be <code>null</code>.
+	 * @param strings The string table.
+	 * @param out The stream to write to.
+	 * @throws IOException If an IO error occurs.
+	 */
+	private static void writeParams(
+			List<? extends ParameterizedCompletion.Parameter> params,
+			StringTable strings, DataOutputStream out) throws IOException {
+		if (params==null) {
+			out.writeInt(NO_PARAMS);
+			return;
+		}
+		out.writeInt(params.size());
+		for (ParameterizedCompletion.Parameter param : params) {
+			out.writeInt(strings.add(param.getType()));
+			out.writeInt(strings.add(param.getName()));
+			out.writeInt(strings.add(param.getDescription()));
+			out.writeByte(param.isEndParam() ? 1 : 0);
+		}
+	}
+
+
+	/**
+	 * Writes the body of a completion's record.
+	 *
+	 * @param c The completion.
+	 * @param strings The string table.
+	 * @param out The stream to write to.
+	 * @throws IOException If an IO error occurs.
+	 * @throws IllegalArgumentException If the completion is of a type that
+	 *         can't be stored.
+	 */
+	private static void writeRecord(Completion c, StringTable strings,
+			DataOutputStream out) throws IOException {
+
+		if (c instanceof FunctionCompletion) {
+			FunctionCompletion fc = (FunctionCompletion)c;
+			String className = c.getClass()==FunctionCompletion.class ? null :
+					c.getClass().getName();
+			out.writeByte(KIND_FUNCTION);
+			out.writeInt(strings.add(className));
+			out.writeInt(strings.add(fc.getName()));
+			out.writeInt(strings.add(fc.getType()));
+			out.writeInt(strings.add(fc.getShortDescription()));
+			out.writeInt(strings.add(fc.getDefinedIn()));
+			out.writeInt(strings.add(fc.getReturnValueDescription()));
+			List<ParameterizedCompletion.Parameter> params =
+					new ArrayList<ParameterizedCompletion.Parameter>();
+			for (int i=0; i<fc.getParamCount(); i++) {
+				params.add(fc.getParam(i));
+			}
+			writeParams(params, strings, out);
+		}
+		else if (c.getClass()==VariableCompletion.class) {
+			VariableCompletion vc = (VariableCompletion)c;
+			out.writeByte(KIND_VARIABLE);
+			out.writeInt(strings.add(vc.getName()));
+			out.writeInt(strings.add(vc.getType()));
+			out.writeInt(strings.add(vc.getShortDescription()));
+			out.writeInt(strings.add(vc.getDefinedIn()));
+		}
+		else if (c.getClass()==MarkupTagCompletion.class) {
+			MarkupTagCompletion mc = (MarkupTagCompletion)c;
+			out.writeByte(KIND_TAG);
+			out.writeInt(strings.add(mc.getName()));
+			out.writeInt(strings.add(mc.getDescription()));
+			out.writeInt(strings.add(mc.getDefinedIn()));
+			writeParams(mc.getAttributes(), strings, out);
+		}
+		else if (c.getClass()==BasicCompletion.class) {
+			BasicCompletion bc = (BasicCompletion)c;
+			out.writeByte(KIND_BASIC);
+			out.writeInt(strings.add(bc.getReplacementText()));
+			out.writeInt(strings.add(bc.getShortDescription()));
+			out.writeInt(strings.add(bc.getSummary()));
+		}
+		else {
+			throw new IllegalArgumentException(
+					"Completion type can't be stored: " + c.getClass());
+		}
+
+	}
+
+
+	/**
+	 * A basic completion whose summary is read from a catalog.  The short
+	 * description is kept, since it is shown in the completion list.
+	 */
+	private static final class CatalogBasicCompletion
+										extends BasicCompletion {
+
+		private CompletionCatalog catalog;
+		private int record;
+
+		public CatalogBasicCompletion(CompletionCatalog catalog,
+				CompletionProvider provider, int record) {
+			super(provider, catalog.getString(catalog.buf.getInt(record)));
+			this.catalog = catalog;
+			this.record = record;
+			setShortDescription(catalog.getString(
+					catalog.buf.getInt(record + 4)));
+		}
+
+		@Override
+		public String getSummary() {
+			String summary = super.getSummary();
+			if (summary==null) {
+				summary = catalog.decodeString(
+						catalog.buf.getInt(record + 8));
+			}
+			return summary;
+		}
+
+	}
+
+
+	/**
+	 * A function completion whose description, return value description
+	 * and parameters are read from a catalog.
+	 */
+	private static final class CatalogFunctionCompletion
+										extends FunctionCompletion {
+
+		private CompletionCatalog catalog;
+		private int record;
+
+		/**
+		 * Whether {@link #setParams(List)} replaced the catalog's
+		 * parameters, possibly with none at all.
+		 */
+		private boolean paramsSet;
+
+		public CatalogFunctionCompletion(CompletionCatalog catalog,
+				CompletionProvider provider, int record) {
+			super(provider, catalog.getString(catalog.buf.getInt(record + 4)),
+					catalog.getString(catalog.buf.getInt(record + 8)));
+			this.catalog = catalog;
+			this.record = record;
+			setDefinedIn(catalog.getString(catalog.buf.getInt(record + 16)));
+		}
+
+		@Override
+		public Parameter getParam(int index) {
+			if (paramsSet) {
+				return super.getParam(index);
+			}
+			if (index<0 || index>=getParamCount()) {
+				throw new IndexOutOfBoundsException("Index: " + index);
+			}
+			return catalog.readParam(record + 24, index);
+		}
+
+		@Override
+		public int getParamCount() {
+			if (paramsSet) {
+				return super.getParamCount();
+			}
+			return catalog.readParamCount(record + 24);
+		}
+
+		@Override
+		public String getReturnValueDescription() {
+			String desc = super.getReturnValueDescription();
+			if (desc==null) {
+				desc = catalog.decodeString(catalog.buf.getInt(record + 20));
+			}
+			return desc;
+		}
+
+		@Override
+		public String getShortDescription() {
+			String desc = super.getShortDescription();
+			if (desc==null) {
+				desc = catalog.decodeString(catalog.buf.getInt(record + 12));
+			}
+			return desc;
+		}
+
+		@Override
+		public void setParams(List<Parameter> params) {
+			super.setParams(params);
+			if (params!=null) { // Ignored by FunctionCompletion
+				paramsSet = true;
+			}
+		}
+
+	}
+
+
+	/**
+	 * A markup tag completion whose description and attributes are read
+	 * from a catalog.
+	 */
+	private static final class CatalogTagCompletion
+										extends MarkupTagCompletion {
+
+		private CompletionCatalog catalog;
+		private int record;
+
+		public CatalogTagCompletion(CompletionCatalog catalog,
+				CompletionProvider provider, int record) {
+			super(provider, catalog.getString(catalog.buf.getInt(record)));
+			this.catalog = catalog;
+			this.record = record;
+			setDefinedIn(catalog.getString(catalog.buf.getInt(record + 8)));
+		}
+
+		@Override
+		public ParameterizedCompletion.Parameter getAttribute(int index) {
+			if (super.getAttributes()!=null) {
+				return super.getAttribute(index);
+			}
+			if (index<0 || index>=getAttributeCount()) {
+				throw new IndexOutOfBoundsException("Index: " + index);
+			}
+			return catalog.readParam(record + 12, index);
+		}
+
+		@Override
+		public int getAttributeCount() {
+			if (super.getAttributes()!=null) {
+				return super.getAttributeCount();
+			}
+			return Math.max(catalog.readParamCount(record + 12), 0);
+		}
+
+		@Override
+		public List<ParameterizedCompletion.Parameter> getAttributes() {
+			List<ParameterizedCompletion.Parameter> attrs =
+					super.getAttributes();
+			return attrs!=null ? attrs : catalog.readParams(record + 12);
+		}
+
+		@Override
+		public String getDescription() {
+			String desc = super.getDescription();
+			if (desc==null) {
+				desc = catalog.decodeString(catalog.buf.getInt(record + 4));
+			}
+			return desc;
+		}
+
+	}
+
+
+	/**
+	 * A variable completion whose description is read from a catalog.
+	 */
+	private static final class CatalogVariableCompletion
+										extends VariableCompletion {
+
+		private CompletionCatalog catalog;
+		private int record;
+
+		public CatalogVariableCompletion(CompletionCatalog catalog,
+				CompletionProvider provider, int record) {
+			super(provider, catalog.getString(catalog.buf.getInt(record)),
+					catalog.getString(catalog.buf.getInt(record + 4)));
+			this.catalog = catalog;
+			this.record = record;
+			setDefinedIn(catalog.getString(catalog.buf.getInt(record + 12)));
+		}
+
+		@Override
+		public String getShortDescription() {
+			String desc = super.getShortDescription();
+			if (desc==null) {
+				desc = catalog.decodeString(catalog.buf.getInt(record + 8));
+			}
+			return desc;
+		}
+
+	}
+
+
+	/**
+	 * The completions of a catalog, created as they are first read.
+	 */
+	static final class CompletionList extends AbstractList<Completion>
+										implements RandomAccess {
+
+		private CompletionCatalog catalog;
+		private CompletionProvider provider;
+		private AtomicReferenceArray<Completion> completions;
+
+		public CompletionList(CompletionCatalog catalog,
+				CompletionProvider provider) {
+			this.catalog = catalog;
+			this.provider = provider;
+			completions = new AtomicReferenceArray<Completion>(
+					catalog.completionCount);
+		}
+
+		@Override
+		public Completion get(int index) {
+			Completion c = completions.get(index);
+			if (c==null) {
+				c = catalog.createCompletion(index, provider);
+				if (!completions.compareAndSet(index, null, c)) {
+					c = completions.get(index); // Another thread won
+				}
+			}
+			return c;
+		}
+
+		/**
+		 * Returns the character mask of a completion's input text, without
+		 * creating the completion.
+		 *
+		 * @param index The index of the completion.
+		 * @return The mask.
+		 */
+		public long getCharMask(int index) {
+			return catalog.getCharMask(index);
+		}
+
+		@Override
+		public int size() {
+			return completions.length();
+		}
+
+	}
+
+
+	/**
+	 * Keeps the SAX parser from closing the caller's stream.
+	 */
+	private static final class UncloseableInputStream
+										extends FilterInputStream {
+
+		public UncloseableInputStream(InputStream in) {
+			super(in);
+		}
+
+		@Override
+		public void close() {
+		}
+
+	}
+
+
+	/**
+	 * The distinct strings of a catalog being written.
+	 */
+	private static final class StringTable {
+
+		private Map<String, Integer> indices;
+		private List<String> strings;
+
+		public StringTable() {
+			indices = new HashMap<String, Integer>();
+			strings = new ArrayList<String>();
+		}
+
+		/**
+		 * Returns the index of a string, adding it if necessary.
+		 *
+		 * @param str The string.  This may be <code>null</code>.
+		 * @return The index, or {@link CompletionCatalog#NO_STRING} if
+		 *         <code>str</code> is <code>null</code>.
+		 */
+		public int add(String str) {
+			if (str==null) {
+				return NO_STRING;
+			}
+			Integer index = indices.get(str);
+			if (index==null) {
+				index = Integer.valueOf(strings.size());
+				indices.put(str, index);
+				strings.add(str);
+			}
+			return index.intValue();
+		}
+
+		public String get(int index) {
+			return strings.get(index);
+		}
+
+		public int size() {
+			return strings.size();
+		}
+
+	}
+
+
+}
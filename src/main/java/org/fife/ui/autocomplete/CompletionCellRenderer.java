@@ -39,6 +39,13 @@ import javax.swing.text.View;
  * <li>{@link TemplateCompletion}s</li>
  * </ul>
  *
+ * Building the HTML for a completion, and having Swing parse it, is by far
+ * the most expensive part of rendering it. This renderer therefore caches
+ * the HTML built for recently rendered completions, as well as the parsed
+ * form of recently rendered HTML, so scrolling through the choices list
+ * repaints rows without building or parsing anything. The caches are cleared
+ * when the Look and Feel or a color used by this renderer changes.
+ *
  * @author Robert Futrell
  * @version 1.0
  */
@@ -108,6 +115,35 @@ public class CompletionCellRenderer extends DefaultListCellRenderer {
 	 */
 	private static final String PREFIX = "<html><nobr>";
 
+	/**
+	 * The HTML of recently rendered completions; the first element of each
+	 * value is for the completion unselected, the second for it selected.
+	 */
+	private transient LruCache<Completion, String[]> textCache;
+
+	/**
+	 * The views Swing parsed recently rendered HTML into.
+	 */
+	private transient LruCache<ViewKey, View> viewCache;
+
+	/**
+	 * Whether {@link #getListCellRendererComponent(JList, Object, int, boolean, boolean)}
+	 * is running. The font and foreground color change while it runs, but
+	 * HTML only needs to be parsed for the final ones.
+	 */
+	private boolean preparing;
+
+	/**
+	 * The number of completions whose HTML is cached.
+	 */
+	private static final int TEXT_CACHE_SIZE = 1024;
+
+	/**
+	 * The number of parsed views cached. Views are much larger than their
+	 * HTML, but still, a few screenfuls of them is plenty.
+	 */
+	private static final int VIEW_CACHE_SIZE = 256;
+
 	/**
 	 * Constructor.
 	 */
@@ -162,6 +198,15 @@ public class CompletionCellRenderer extends DefaultListCellRenderer {
 		return "#808080";
 	}
 
+	/**
+	 * Empties the caches of HTML and views, so they are recreated with the
+	 * current colors and settings.
+	 */
+	private void clearCaches() {
+		textCache = null;
+		viewCache = null;
+	}
+
 	/**
 	 * Attempts to delegate rendering to a Substance cell renderer. This should
 	 * only be called if Substance is known to be on the classpath.
@@ -178,6 +223,48 @@ public class CompletionCellRenderer extends DefaultListCellRenderer {
 		setDelegateRenderer(delegate);
 	}
 
+	/**
+	 * Overridden to reuse parsed HTML for text that was rendered recently,
+	 * with the same font and foreground color. Changes to the font and
+	 * foreground color made while this renderer is being prepared are
+	 * ignored; the HTML is parsed (or found in the cache) once the final
+	 * text is set.
+	 */
+	@Override
+	protected void firePropertyChange(String propertyName, Object oldValue, Object newValue) {
+
+		boolean text = "text".equals(propertyName);
+		if (!text && !"font".equals(propertyName) && !"foreground".equals(propertyName)) {
+			super.firePropertyChange(propertyName, oldValue, newValue);
+			return;
+		}
+		if (preparing && !text) {
+			return;
+		}
+
+		String str = getText();
+		if (str == null || !BasicHTML.isHTMLString(str)) {
+			super.firePropertyChange(propertyName, oldValue, newValue);
+			return;
+		}
+
+		if (viewCache == null) {
+			viewCache = new LruCache<ViewKey, View>(VIEW_CACHE_SIZE);
+		}
+		ViewKey key = new ViewKey(str, getFont(), getForeground());
+		View view = viewCache.get(key);
+		if (view != null) {
+			putClientProperty(BasicHTML.propertyKey, view);
+		} else {
+			super.firePropertyChange(propertyName, oldValue, newValue); // Parses
+			view = (View) getClientProperty(BasicHTML.propertyKey);
+			if (view != null) {
+				viewCache.put(key, view);
+			}
+		}
+
+	}
+
 	/**
 	 * Returns the background color to use on alternating lines.
 	 *
@@ -189,6 +276,25 @@ public class CompletionCellRenderer extends DefaultListCellRenderer {
 		return altBG;
 	}
 
+	/**
+	 * Returns the HTML cached for a completion, if any. This is used by the
+	 * <code>prepareForXXX()</code> methods.
+	 *
+	 * @param c
+	 *            The completion.
+	 * @param selected
+	 *            Whether the completion is being rendered selected.
+	 * @return The HTML, or <code>null</code> if it is not cached.
+	 * @see #setCachedText(Completion, boolean, String)
+	 */
+	protected String getCachedText(Completion c, boolean selected) {
+		if (textCache == null) {
+			return null;
+		}
+		String[] texts = textCache.get(c);
+		return texts == null ? null : texts[selected ? 1 : 0];
+	}
+
 	/**
 	 * Returns the delegate renderer, or <code>null</code> if there is none.
 	 *
@@ -263,9 +369,14 @@ public class CompletionCellRenderer extends DefaultListCellRenderer {
 	public Component getListCellRendererComponent(JList<?> list, Object value, int index, boolean selected,
 			boolean hasFocus) {
 
-		super.getListCellRendererComponent(list, value, index, selected, hasFocus);
-		if (font != null) {
-			setFont(font); // Overrides super's setFont(list.getFont()).
+		preparing = true;
+		try {
+			super.getListCellRendererComponent(list, value, index, selected, hasFocus);
+			if (font != null) {
+				setFont(font); // Overrides super's setFont(list.getFont()).
+			}
+		} finally {
+			preparing = false;
 		}
 		this.selected = selected;
 		this.realBG = altBG != null && (index & 1) == 1 ? altBG : list.getBackground();
@@ -308,6 +419,16 @@ public class CompletionCellRenderer extends DefaultListCellRenderer {
 
 	}
 
+	/**
+	 * Returns the color used for function arguments.
+	 *
+	 * @return The color.
+	 * @see #setParamColor(Color)
+	 */
+	public Color getParamColor() {
+		return Color.decode(paramColor);
+	}
+
 	/**
 	 * Returns whether the types of fields and return types of methods are shown
 	 * in the completion text.
@@ -319,6 +440,16 @@ public class CompletionCellRenderer extends DefaultListCellRenderer {
 		return showTypes;
 	}
 
+	/**
+	 * Returns the color used for function/field types.
+	 *
+	 * @return The color.
+	 * @see #setTypeColor(Color)
+	 */
+	public Color getTypeColor() {
+		return Color.decode(typeColor);
+	}
+
 	private void init() {
 		// setDisplayFont(new Font("Monospaced", Font.PLAIN, 12));
 		setShowTypes(true);
@@ -354,24 +485,39 @@ public class CompletionCellRenderer extends DefaultListCellRenderer {
 		if (text != null) {
 			paintTextR.setBounds(iconW, 0, getWidth() - iconW, getHeight());
 			paintTextR.x += 3; // Force a slight margin
-			int space = paintTextR.height - g.getFontMetrics().getHeight();
-			View v = (View) getClientProperty(BasicHTML.propertyKey);
-			if (v != null) {
-				// HTML rendering doesn't auto-center vertically, for some
-				// reason
-				paintTextR.y += space / 2;
-				paintTextR.height -= space;
-				v.paint(g, paintTextR);
-			} else {
-				int textX = paintTextR.x;
-				int textY = paintTextR.y;// + g.getFontMetrics().getAscent();
-				// System.out.println(g.getFontMetrics().getAscent());
-				g.drawString(text, textX, textY);
-			}
+			paintText(g, text, paintTextR);
 		}
 
 	}
 
+	/**
+	 * Paints the text of the completion being rendered, after the background
+	 * and icon have been painted.
+	 *
+	 * @param g
+	 *            The graphics context.
+	 * @param text
+	 *            The text of this renderer.
+	 * @param textR
+	 *            The area to paint the text in. This may be modified.
+	 */
+	protected void paintText(Graphics g, String text, Rectangle textR) {
+		int space = textR.height - g.getFontMetrics().getHeight();
+		View v = (View) getClientProperty(BasicHTML.propertyKey);
+		if (v != null) {
+			// HTML rendering doesn't auto-center vertically, for some
+			// reason
+			textR.y += space / 2;
+			textR.height -= space;
+			v.paint(g, textR);
+		} else {
+			int textX = textR.x;
+			int textY = textR.y;// + g.getFontMetrics().getAscent();
+			// System.out.println(g.getFontMetrics().getAscent());
+			g.drawString(text, textX, textY);
+		}
+	}
+
 	/**
 	 * Prepares this renderer to display a function completion.
 	 *
@@ -389,6 +535,12 @@ public class CompletionCellRenderer extends DefaultListCellRenderer {
 	protected void prepareForFunctionCompletion(JList<?> list, FunctionCompletion fc, int index, boolean selected,
 			boolean hasFocus) {
 
+		String text = getCachedText(fc, selected);
+		if (text != null) {
+			setText(text);
+			return;
+		}
+
 		StringBuilder sb = new StringBuilder(PREFIX);
 		sb.append(fc.getName());
 
@@ -438,7 +590,7 @@ public class CompletionCellRenderer extends DefaultListCellRenderer {
 			}
 		}
 
-		setText(sb.toString());
+		setCachedText(fc, selected, sb.toString());
 
 	}
 
@@ -459,10 +611,16 @@ public class CompletionCellRenderer extends DefaultListCellRenderer {
 	protected void prepareForMarkupTagCompletion(JList<?> list, MarkupTagCompletion mc, int index, boolean selected,
 			boolean hasFocus) {
 
+		String text = getCachedText(mc, selected);
+		if (text != null) {
+			setText(text);
+			return;
+		}
+
 		StringBuilder sb = new StringBuilder(PREFIX);
 		sb.append(mc.getName());
 
-		setText(sb.toString());
+		setCachedText(mc, selected, sb.toString());
 
 	}
 
@@ -484,6 +642,12 @@ public class CompletionCellRenderer extends DefaultListCellRenderer {
 	protected void prepareForOtherCompletion(JList<?> list, Completion c, int index, boolean selected,
 			boolean hasFocus) {
 
+		String text = getCachedText(c, selected);
+		if (text != null) {
+			setText(text);
+			return;
+		}
+
 		StringBuilder sb = new StringBuilder(PREFIX);
 		sb.append(c.getInputText());
 
@@ -501,7 +665,7 @@ public class CompletionCellRenderer extends DefaultListCellRenderer {
 			}
 		}
 
-		setText(sb.toString());
+		setCachedText(c, selected, sb.toString());
 
 	}
 
@@ -522,6 +686,12 @@ public class CompletionCellRenderer extends DefaultListCellRenderer {
 	protected void prepareForTemplateCompletion(JList<?> list, TemplateCompletion tc, int index, boolean selected,
 			boolean hasFocus) {
 
+		String text = getCachedText(tc, selected);
+		if (text != null) {
+			setText(text);
+			return;
+		}
+
 		StringBuilder sb = new StringBuilder(PREFIX);
 		sb.append(tc.getInputText());
 
@@ -537,7 +707,7 @@ public class CompletionCellRenderer extends DefaultListCellRenderer {
 			}
 		}
 
-		setText(sb.toString());
+		setCachedText(tc, selected, sb.toString());
 
 	}
 
@@ -558,6 +728,12 @@ public class CompletionCellRenderer extends DefaultListCellRenderer {
 	protected void prepareForVariableCompletion(JList<?> list, VariableCompletion vc, int index, boolean selected,
 			boolean hasFocus) {
 
+		String text = getCachedText(vc, selected);
+		if (text != null) {
+			setText(text);
+			return;
+		}
+
 		StringBuilder sb = new StringBuilder(PREFIX);
 		sb.append(vc.getName());
 
@@ -572,7 +748,7 @@ public class CompletionCellRenderer extends DefaultListCellRenderer {
 			}
 		}
 
-		setText(sb.toString());
+		setCachedText(vc, selected, sb.toString());
 
 	}
 
@@ -589,6 +765,32 @@ public class CompletionCellRenderer extends DefaultListCellRenderer {
 		CompletionCellRenderer.altBG = altBG;
 	}
 
+	/**
+	 * Sets the HTML to render a completion with, and caches it for the next
+	 * time the completion is rendered. This is used by the
+	 * <code>prepareForXXX()</code> methods.
+	 *
+	 * @param c
+	 *            The completion.
+	 * @param selected
+	 *            Whether the completion is being rendered selected.
+	 * @param text
+	 *            The HTML.
+	 * @see #getCachedText(Completion, boolean)
+	 */
+	protected void setCachedText(Completion c, boolean selected, String text) {
+		if (textCache == null) {
+			textCache = new LruCache<Completion, String[]>(TEXT_CACHE_SIZE);
+		}
+		String[] texts = textCache.get(c);
+		if (texts == null) {
+			texts = new String[2];
+			textCache.put(c, texts);
+		}
+		texts[selected ? 1 : 0] = text;
+		setText(text);
+	}
+
 	/**
 	 * Sets the delegate renderer. Most users will never use this method; it is
 	 * primarily a hook for Substance and other Look and Feels whose renderers
@@ -650,11 +852,13 @@ public class CompletionCellRenderer extends DefaultListCellRenderer {
 	 *
 	 * @param color
 	 *            The color to use. This is ignored if <code>null</code>.
+	 * @see #getParamColor()
 	 * @see #setTypeColor(Color)
 	 */
 	public void setParamColor(Color color) {
 		if (color != null) {
 			paramColor = Util.getHexString(color);
+			clearCaches();
 		}
 	}
 
@@ -668,6 +872,7 @@ public class CompletionCellRenderer extends DefaultListCellRenderer {
 	 */
 	public void setShowTypes(boolean show) {
 		this.showTypes = show;
+		clearCaches();
 	}
 
 	/**
@@ -678,12 +883,14 @@ public class CompletionCellRenderer extends DefaultListCellRenderer {
 	 * @param color
 	 *            The color to use for types. This is ignored if
 	 *            <code>null</code>.
+	 * @see #getTypeColor()
 	 * @see #setShowTypes(boolean)
 	 * @see #setParamColor(Color)
 	 */
 	public void setTypeColor(Color color) {
 		if (color != null) {
 			typeColor = Util.getHexString(color);
+			clearCaches();
 		}
 	}
 
@@ -697,6 +904,50 @@ public class CompletionCellRenderer extends DefaultListCellRenderer {
 			SwingUtilities.updateComponentTreeUI(delegate);
 		}
 		paramColor = createParamColor();
+		clearCaches();
+	}
+
+	/**
+	 * The key of a parsed view in the cache: the HTML, and the font and
+	 * foreground color it was parsed with.
+	 */
+	private static final class ViewKey {
+
+		private String text;
+		private Font font;
+		private Color foreground;
+
+		ViewKey(String text, Font font, Color foreground) {
+			this.text = text;
+			this.font = font;
+			this.foreground = foreground;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (!(o instanceof ViewKey)) {
+				return false;
+			}
+			ViewKey key2 = (ViewKey) o;
+			return text.equals(key2.text) && equal(font, key2.font) && equal(foreground, key2.foreground);
+		}
+
+		private static boolean equal(Object o1, Object o2) {
+			return o1 == null ? o2 == null : o1.equals(o2);
+		}
+
+		@Override
+		public int hashCode() {
+			int hash = text.hashCode();
+			if (font != null) {
+				hash = 31 * hash + font.hashCode();
+			}
+			if (foreground != null) {
+				hash = 31 * hash + foreground.hashCode();
+			}
+			return hash;
+		}
+
 	}
 
 }
\ No newline at end of file
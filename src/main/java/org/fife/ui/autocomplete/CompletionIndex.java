@@ -0,0 +1,86 @@
+/*
+ * 10/17/2026
+ *
+ * CompletionIndex.java - Answers prefix queries over a sorted list of
+ * completions.
+ *
+ * This library is distributed under a modified BSD license.  See the included
+ * RSyntaxTextArea.License.txt file for details.
+ */
+package org.fife.ui.autocomplete;
+
+import java.util.List;
+
+
+/**
+ * An index over a list of {@link Completion}s sorted case-insensitively by
+ * their input text, as kept by {@link AbstractCompletionProvider}.  Since all
+ * completions starting with a given prefix form a contiguous range of such a
+ * list, every query can be answered with a view of the indexed list; no
+ * <tt>Completion</tt> needs to be copied or even looked at.<p>
+ *
+ * An index is immutable.  Providers build a new one (via a {@link Factory})
+ * whenever their completions change.
+ *
+ * @version 1.0
+ * @see SortedListCompletionIndex
+ * @see TrieCompletionIndex
+ * @see AbstractCompletionProvider#setCompletionIndexFactory(Factory)
+ */
+public interface CompletionIndex {
+
+
+	/**
+	 * Returns the number of completions whose input text starts with the
+	 * specified prefix, ignoring case.  This does not materialize the
+	 * completions themselves.
+	 *
+	 * @param prefix The prefix.  An empty string matches all completions.
+	 * @return The number of matching completions.
+	 */
+	public int getCompletionCount(String prefix);
+
+
+	/**
+	 * Returns the completions whose input text starts with the specified
+	 * prefix, ignoring case.
+	 *
+	 * @param prefix The prefix.  An empty string matches all completions.
+	 * @return A read-only view of the matching completions, in sorted order.
+	 *         This will be empty, never <code>null</code>, if there are no
+	 *         matches.
+	 */
+	public List<Completion> getCompletionsStartingWith(String prefix);
+
+
+	/**
+	 * Returns the completions whose input text is equal to the specified
+	 * text, ignoring case.  There may be more than one, for example for
+	 * overloaded functions.
+	 *
+	 * @param inputText The input text.
+	 * @return A read-only view of the matching completions, in sorted order.
+	 *         This will be empty, never <code>null</code>, if there are no
+	 *         matches.
+	 */
+	public List<Completion> getCompletionsWithInputText(String inputText);
+
+
+	/**
+	 * Creates {@link CompletionIndex} instances.
+	 */
+	public interface Factory {
+
+		/**
+		 * Creates an index over a list of completions.
+		 *
+		 * @param completions The completions, sorted case-insensitively by
+		 *        input text.  The list will not be modified afterward.
+		 * @return The index.
+		 */
+		public CompletionIndex createIndex(List<Completion> completions);
+
+	}
+
+
+}
@@ -1,7 +1,8 @@
 /*
  * 12/22/2008
  *
- * CompletionListModel.java - A model that allows bulk addition of elements.
+ * CompletionListModel.java - A model that displays a list of completions
+ * without copying it.
  * 
  * This library is distributed under a modified BSD license.  See the included
  * RSyntaxTextArea.License.txt file for details.
@@ -9,16 +10,27 @@
 package org.fife.ui.autocomplete;
 
 import java.util.ArrayList;
-import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.RandomAccess;
 
 import javax.swing.AbstractListModel;
 
 
 /**
- * A list model implementation that allows the bulk addition of elements.
- * This is the only feature missing from <code>DefaultListModel</code> that
- * we need.
+ * A list model displaying a list of completions.  The list is not copied, but
+ * used directly, so only the completions actually displayed are ever looked
+ * at.  This matters since providers return lazily-sorted lists (see
+ * {@link SortedCompletionList}): a list with thousands of completions is only
+ * sorted as far as the popup window displays it.  The list must not be
+ * modified while it is displayed.<p>
+ *
+ * When the contents are replaced, only the rows that changed are reported to
+ * listeners, rather than the old rows being removed and the new ones added.
+ * In particular, when the user narrows down the completions by typing, the
+ * new completions are usually an ordered subset of the old ones, and just
+ * the rows that went away are reported removed.  The list's selection then
+ * stays on the same completion.
  *
  * @author Robert Futrell
  * @version 1.0
@@ -26,16 +38,53 @@ import javax.swing.AbstractListModel;
 class CompletionListModel extends AbstractListModel {
 
 	/**
-	 * Container for items in this model.
+	 * The completions displayed.  While rows are being removed one range at
+	 * a time, this is already the new contents; see {@link #splitIndex}.
 	 */
 	private List<Completion> delegate;
 
+	/**
+	 * The previous contents, while rows are being removed.
+	 */
+	private List<Completion> previous;
+
+	/**
+	 * While rows are being removed, rows before this index are still those
+	 * of {@link #previous}, and later ones are those of {@link #delegate},
+	 * shifted by {@link #splitOffset}.
+	 */
+	private int splitIndex;
+
+	/**
+	 * The number of rows before {@link #splitIndex} that are not in
+	 * {@link #delegate}.
+	 */
+	private int splitOffset;
+
+	/**
+	 * The number of rows, which may differ from the size of
+	 * {@link #delegate} while rows are being removed.
+	 */
+	private int size;
+
+	/**
+	 * Lists larger than this are not compared to their replacements, since
+	 * that would require sorting them entirely.
+	 */
+	private static final int MAX_DIFF_SIZE		= 1000;
+
+	/**
+	 * If more ranges of rows than this were removed, the contents are
+	 * replaced as a whole instead.
+	 */
+	private static final int MAX_REMOVED_RANGES	= 32;
+
 
 	/**
 	 * Constructor.
 	 */
 	public CompletionListModel() {
-		delegate = new ArrayList<Completion>();
+		delegate = Collections.emptyList();
 	}
 
 
@@ -43,11 +92,12 @@ class CompletionListModel extends AbstractListModel {
 	 * Removes all of the elements from this list.  The list will
 	 * be empty after this call returns (unless it throws an exception).
 	 *
-	 * @see #setContents(Collection)
+	 * @see #setContents(List)
 	 */
 	public void clear() {
-		int end = delegate.size()-1;
-		delegate.clear();
+		int end = size-1;
+		delegate = Collections.emptyList();
+		size = 0;
 		if (end >= 0) {
 			fireIntervalRemoved(this, 0, end);
 		}
@@ -58,7 +108,27 @@ class CompletionListModel extends AbstractListModel {
 	 * {@inheritDoc}
 	 */
 	public Object getElementAt(int index) {
-		return delegate.get(index);
+		if (index<splitIndex) {
+			return previous.get(index);
+		}
+		return delegate.get(index - splitOffset);
+	}
+
+
+	/**
+	 * Returns an element without sorting the contents to find it.  Iterating
+	 * over all indices this way visits each element once, in no particular
+	 * order.  This is useful for sampling the elements.
+	 *
+	 * @param index The index.
+	 * @return The element.
+	 * @see SortedCompletionList#getUnsorted(int)
+	 */
+	public Object getElementAtUnsorted(int index) {
+		if (splitIndex==0 && delegate instanceof SortedCompletionList) {
+			return ((SortedCompletionList)delegate).getUnsorted(index);
+		}
+		return getElementAt(index);
 	}
 
 
@@ -66,22 +136,124 @@ class CompletionListModel extends AbstractListModel {
 	 * {@inheritDoc}
 	 */
 	public int getSize() {
-		return delegate.size();
+		return size;
+	}
+
+
+	/**
+	 * Finds the ranges of rows removed, if the new contents are the old ones
+	 * with some rows removed.
+	 *
+	 * @param contents The new contents.
+	 * @return The first and last index of each range removed, in ascending
+	 *         order, or <code>null</code> if the new contents are not an
+	 *         ordered subset of the old ones, or differ too much.
+	 */
+	private int[] getRemovedRanges(List<Completion> contents) {
+
+		int oldCount = delegate.size();
+		int count = contents.size();
+		if (oldCount>MAX_DIFF_SIZE || count==0 || count>=oldCount) {
+			return null;
+		}
+
+		int[] ranges = new int[2*MAX_REMOVED_RANGES];
+		int rangeCount = 0;
+		int j = 0;
+		for (int i=0; i<oldCount; i++) {
+			if (j<count && delegate.get(i)==contents.get(j)) {
+				j++;
+			}
+			else if (oldCount-i<=count-j) {
+				return null; // Too few rows left
+			}
+			else if (rangeCount>0 && ranges[2*rangeCount-1]==i-1) {
+				ranges[2*rangeCount-1] = i;
+			}
+			else if (rangeCount==MAX_REMOVED_RANGES) {
+				return null;
+			}
+			else {
+				ranges[2*rangeCount] = ranges[2*rangeCount+1] = i;
+				rangeCount++;
+			}
+		}
+
+		int[] result = new int[2*rangeCount];
+		System.arraycopy(ranges, 0, result, 0, result.length);
+		return result;
+
+	}
+
+
+	/**
+	 * Replaces the contents with an ordered subset of them, reporting each
+	 * range of removed rows separately.  Ranges are removed last to first,
+	 * and at each step this model presents the rows that remain.
+	 *
+	 * @param contents The new contents.
+	 * @param ranges The ranges of rows removed, as returned by
+	 *        {@link #getRemovedRanges(List)}.
+	 */
+	private void removeRanges(List<Completion> contents, int[] ranges) {
+
+		previous = delegate;
+		delegate = contents;
+
+		int removedBefore = previous.size() - contents.size();
+		for (int i=ranges.length-2; i>=0; i-=2) {
+			int start = ranges[i];
+			int end = ranges[i+1];
+			int removed = end - start + 1;
+			removedBefore -= removed;
+			splitIndex = start;
+			splitOffset = removedBefore;
+			size -= removed;
+			fireIntervalRemoved(this, start, end);
+		}
+
+		previous = null;
+		splitIndex = splitOffset = 0;
+
 	}
 
 
 	/**
 	 * Sets the contents of this model.  All previous contents are removed.
 	 *
-	 * @param contents The new contents of this model.
+	 * @param contents The new contents of this model.  This list is used
+	 *        directly (unless it does not support fast random access), and
+	 *        should not be modified afterward.
 	 */
-	public void setContents(Collection<Completion> contents) {
-		clear();
+	public void setContents(List<Completion> contents) {
+
+		if (!(contents instanceof RandomAccess)) {
+			contents = new ArrayList<Completion>(contents);
+		}
+
+		int[] removedRanges = getRemovedRanges(contents);
+		if (removedRanges!=null) {
+			removeRanges(contents, removedRanges);
+			return;
+		}
+
+		int oldCount = size;
 		int count = contents.size();
-		if (count>0) {
-			delegate.addAll(contents);
-			fireIntervalAdded(this, 0, count-1); // endpoints included (!)
+		delegate = contents;
+		size = count;
+
+		// Rows that exist both before and after are simply changed
+		if (count<oldCount) {
+			fireIntervalRemoved(this, count, oldCount-1);
 		}
+		else if (count>oldCount) {
+			fireIntervalAdded(this, oldCount, count-1);
+		}
+		int changed = Math.min(count, oldCount);
+		if (changed>0) {
+			fireContentsChanged(this, 0, changed-1);
+		}
+
 	}
 
 
@@ -0,0 +1,50 @@
+/*
+ * 10/17/2026
+ *
+ * CompletionLoadListener.java - Is notified as completions are loaded in the
+ * background.
+ *
+ * This library is distributed under a modified BSD license.  See the included
+ * RSyntaxTextArea.License.txt file for details.
+ */
+package org.fife.ui.autocomplete;
+
+import java.io.IOException;
+import java.util.EventListener;
+
+
+/**
+ * Is notified as completions are loaded into a provider in the background,
+ * for example to display the progress in the UI.  All methods are called on
+ * the Event Dispatch Thread.
+ *
+ * @version 1.0
+ * @see DefaultCompletionProvider#loadFromXMLIncrementally(java.io.InputStream, ClassLoader, java.util.concurrent.Executor, CompletionLoadListener)
+ */
+public interface CompletionLoadListener extends EventListener {
+
+
+	/**
+	 * Called each time more completions have been added to the provider.
+	 *
+	 * @param completionCount The number of completions added so far.
+	 * @param bytesRead The number of bytes read from the source so far.
+	 *        Callers knowing the size of the source can use this to compute
+	 *        how much of it has been loaded.
+	 */
+	public void completionsLoaded(int completionCount, long bytesRead);
+
+
+	/**
+	 * Called once loading is done, after the last
+	 * {@link #completionsLoaded(int, long)} call.
+	 *
+	 * @param error The error that stopped the loading, or <code>null</code>
+	 *        if all completions were loaded.  If loading was interrupted,
+	 *        this is an <code>InterruptedIOException</code>.  Completions
+	 *        loaded before the error stay in the provider.
+	 */
+	public void loadFinished(IOException error);
+
+
+}
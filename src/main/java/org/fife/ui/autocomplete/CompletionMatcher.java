@@ -0,0 +1,64 @@
+/*
+ * 10/17/2026
+ *
+ * CompletionMatcher.java - Decides which completions match the entered text.
+ *
+ * This library is distributed under a modified BSD license.  See the included
+ * RSyntaxTextArea.License.txt file for details.
+ */
+package org.fife.ui.autocomplete;
+
+
+/**
+ * Decides whether a completion matches the text the user has entered, and how
+ * well.  Completions are displayed best match first; completions matching
+ * equally well are sorted by their relevance, then alphabetically.<p>
+ *
+ * A text can only match if it contains each character of the pattern,
+ * ignoring case.  Providers rely on this to skip most completions without
+ * calling {@link #match(String, String)}.
+ *
+ * @version 1.0
+ * @see PrefixCompletionMatcher
+ * @see FuzzyCompletionMatcher
+ * @see CompletionProviderBase#setCompletionMatcher(CompletionMatcher)
+ */
+public interface CompletionMatcher {
+
+	/**
+	 * The score of a text that doesn't match.
+	 */
+	public static final int NO_MATCH = -1;
+
+	/**
+	 * The score of a text starting with the pattern, ignoring case.  All other
+	 * matches should score lower, so completions from providers using
+	 * different matchers can be sorted together.
+	 */
+	public static final int PREFIX_MATCH = 1000;
+
+
+	/**
+	 * Returns whether this matcher only matches texts starting with the
+	 * pattern, ignoring case.  Providers can look up such matches in an index
+	 * instead of examining each completion.  A prefix matcher must score
+	 * every match {@link #PREFIX_MATCH}, so that sorting can skip scoring
+	 * altogether.
+	 *
+	 * @return Whether this is a prefix matcher.
+	 */
+	public boolean isPrefixMatcher();
+
+
+	/**
+	 * Returns how well a completion's input text matches the entered text.
+	 *
+	 * @param pattern The entered text.  This will not be empty.
+	 * @param text The completion's input text.
+	 * @return The score, between <code>0</code> and {@link #PREFIX_MATCH}
+	 *         (higher is better), or {@link #NO_MATCH}.
+	 */
+	public int match(String pattern, String text);
+
+
+}
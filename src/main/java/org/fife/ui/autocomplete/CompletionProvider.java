@@ -58,7 +58,10 @@ public interface CompletionProvider {
 	 *
 	 * @param comp The text component.
 	 * @return The list of {@link Completion}s.  If no completions are
-	 *         available, this method should return an empty list.
+	 *         available, this method should return an empty list.  The
+	 *         list may put itself into order lazily, as it is read, so it
+	 *         should only be read on one thread at a time.  It may be
+	 *         modified, although the first modification may copy it.
 	 */
 	public List<Completion> getCompletions(JTextComponent comp);
 
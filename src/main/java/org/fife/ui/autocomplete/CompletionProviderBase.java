@@ -8,9 +8,10 @@
  */
 package org.fife.ui.autocomplete;
 
-import java.util.Collections;
+import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
+import java.util.concurrent.Callable;
 import javax.swing.ListCellRenderer;
 import javax.swing.text.BadLocationException;
 import javax.swing.text.Document;
@@ -27,7 +28,8 @@ import javax.swing.text.Segment;
  * @version 1.0
  * @see AbstractCompletionProvider
  */
-public abstract class CompletionProviderBase implements CompletionProvider {
+public abstract class CompletionProviderBase
+								implements AsyncCompletionProvider {
 
 	/**
 	 * The parent completion provider.
@@ -65,6 +67,19 @@ public abstract class CompletionProviderBase implements CompletionProvider {
 	 */
 	private String autoActivateChars;
 
+	/**
+	 * Decides which completions match the already-entered text.  This is
+	 * volatile since sorting completions off the Event Dispatch Thread
+	 * scores them with their provider's matcher.
+	 */
+	private volatile CompletionMatcher matcher = Util.PREFIX_MATCHER;
+
+	/**
+	 * Whether completions duplicating one of this provider's are dropped from
+	 * the parent's completions.
+	 */
+	private boolean removeDuplicates;
+
 	/**
 	 * Provides completion choices for a parameterized completion's parameters.
 	 */
@@ -94,29 +109,92 @@ public abstract class CompletionProviderBase implements CompletionProvider {
 	}
 
 
+	/**
+	 * {@inheritDoc}<p>
+	 *
+	 * This implementation computes the completions right away, on the
+	 * calling thread, and returns a task that simply hands them back.
+	 * Subclasses that can do their work without the text component should
+	 * override this method, only capturing what they need from the text
+	 * component here and deferring the rest to the task.
+	 *
+	 * @see #createParentCompletionsTask(JTextComponent)
+	 */
+	public Callable<List<Completion>> createCompletionsTask(
+			JTextComponent comp) {
+		return new CompletedTask(getCompletions(comp));
+	}
+
+
+	/**
+	 * Creates a task computing the completions of this provider's parent,
+	 * for subclasses implementing
+	 * {@link #createCompletionsTask(JTextComponent)}.  If the parent is an
+	 * {@link AsyncCompletionProvider}, its task is returned, otherwise its
+	 * completions are computed right away.
+	 *
+	 * @param comp The text component.
+	 * @return The task, or <code>null</code> if this provider has no parent.
+	 */
+	protected Callable<List<Completion>> createParentCompletionsTask(
+			JTextComponent comp) {
+		if (parent==null) {
+			return null;
+		}
+		if (parent instanceof AsyncCompletionProvider) {
+			return ((AsyncCompletionProvider)parent).
+					createCompletionsTask(comp);
+		}
+		return new CompletedTask(parent.getCompletions(comp));
+	}
+
+
 	/**
 	 * {@inheritDoc}
 	 */
 	public List<Completion> getCompletions(JTextComponent comp) {
-
 		List<Completion> completions = getCompletionsImpl(comp);
-		if (parent!=null) {
-			List<Completion> parentCompletions = parent.getCompletions(comp);
-			if (parentCompletions!=null) {
-				completions.addAll(parentCompletions);
-				Collections.sort(completions);
+		List<Completion> parentCompletions = parent==null ? null :
+				parent.getCompletions(comp);
+		return sortCompletions(completions, parentCompletions,
+				getAlreadyEnteredText(comp));
+	}
+
+
+	/**
+	 * Copies completions into an array.  Their order is not preserved; in
+	 * particular, a {@link SortedCompletionList} is not sorted first.
+	 *
+	 * @param completions The completions.
+	 * @param dest The array to copy into.
+	 * @param offs The offset in <code>dest</code> to copy to.
+	 */
+	private static void copyUnsorted(List<Completion> completions,
+			Completion[] dest, int offs) {
+		int count = completions.size();
+		if (completions instanceof SortedCompletionList) {
+			SortedCompletionList scl = (SortedCompletionList)completions;
+			for (int i=0; i<count; i++) {
+				dest[offs++] = scl.getUnsorted(i);
 			}
 		}
-
-		// NOTE: We can't sort by relevance prior to this; we need to have
-		// things alphabetical so we can easily narrow down completions to
-		// those starting with what was already typed.
-		if (/*sortByRelevance*/true) {
-			Collections.sort(completions, sortByRelevanceComparator);
+		else {
+			for (Completion c : completions) {
+				dest[offs++] = c;
+			}
 		}
+	}
 
-		return completions;
 
+	/**
+	 * Returns the matcher deciding which completions match the
+	 * already-entered text.
+	 *
+	 * @return The matcher.
+	 * @see #setCompletionMatcher(CompletionMatcher)
+	 */
+	public CompletionMatcher getCompletionMatcher() {
+		return matcher;
 	}
 
 
@@ -178,6 +256,19 @@ public abstract class CompletionProviderBase implements CompletionProvider {
 	}
 
 
+	/**
+	 * Returns whether completions from the parent provider are dropped if
+	 * they have the same input text and definition as one of this
+	 * provider's.
+	 *
+	 * @return Whether duplicates are removed.
+	 * @see #setRemoveDuplicates(boolean)
+	 */
+	public boolean getRemoveDuplicates() {
+		return removeDuplicates;
+	}
+
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -210,6 +301,23 @@ public abstract class CompletionProviderBase implements CompletionProvider {
 	}
 
 
+	/**
+	 * Sets the matcher deciding which completions match the already-entered
+	 * text.  By default, completions starting with the text match; a
+	 * {@link FuzzyCompletionMatcher} also matches completions by camel humps,
+	 * segments or subsequences.
+	 *
+	 * @param matcher The matcher.  This cannot be <code>null</code>.
+	 * @see #getCompletionMatcher()
+	 */
+	public void setCompletionMatcher(CompletionMatcher matcher) {
+		if (matcher==null) {
+			throw new IllegalArgumentException("matcher cannot be null");
+		}
+		this.matcher = matcher;
+	}
+
+
 	/**
 	 * Sets the param choices provider.  This is used when a user
 	 * code-completes a parameterized completion, such as a function or method.
@@ -261,4 +369,184 @@ public abstract class CompletionProviderBase implements CompletionProvider {
 	}
 
 
+	/**
+	 * Sets whether completions from the parent provider are dropped if they
+	 * have the same input text and definition as one of this provider's.
+	 * This lets a provider override completions of its parents, for example
+	 * a session-specific provider whose parent knows global completions.
+	 * The definition of a {@link VariableCompletion} or
+	 * {@link FunctionCompletion} is its definition string, that of other
+	 * completions is their replacement text.  By default, duplicates are
+	 * not removed.
+	 *
+	 * @param remove Whether to remove duplicates.
+	 * @see #getRemoveDuplicates()
+	 */
+	public void setRemoveDuplicates(boolean remove) {
+		removeDuplicates = remove;
+	}
+
+
+	/**
+	 * Combines this provider's completions with those of its parent, and
+	 * sorts them into the order they are displayed in.  Only as much of the
+	 * result is sorted as is read; usually that is just the first screenful
+	 * of completions displayed in the popup window.  The parent's
+	 * completions are not copied if they are already sorted (that is, if the
+	 * parent is a <code>CompletionProviderBase</code> itself); they are
+	 * merged with this provider's as the result is read.  This way, even
+	 * long chains of parents only cost what is displayed.
+	 *
+	 * @param completions This provider's completions.
+	 * @param parentCompletions The parent's completions.  This may be
+	 *        <code>null</code>.
+	 * @param text The already-entered text.  This may be <code>null</code>.
+	 * @return The sorted completions.  These are ordered by how well they
+	 *         match <code>text</code>, then by relevance, then
+	 *         lexicographically.  Modifying the returned list copies it
+	 *         first.
+	 * @see #getCompletionMatcher()
+	 */
+	protected List<Completion> sortCompletions(List<Completion> completions,
+			List<Completion> parentCompletions, String text) {
+		return sortCompletions(completions, parentCompletions,
+				createComparator(text), removeDuplicates);
+	}
+
+
+	/**
+	 * Does the work of {@link #sortCompletions(List, List, String)}.  This
+	 * only uses its arguments, so it can be called on any thread.
+	 *
+	 * @param completions This provider's completions.
+	 * @param parentCompletions The parent's completions.  This may be
+	 *        <code>null</code>.
+	 * @param comparator The order to sort the completions in, as returned
+	 *        by {@link #createComparator(String)}.
+	 * @param removeDuplicates Whether to drop parent completions duplicating
+	 *        one of this provider's.
+	 * @return The sorted completions.
+	 */
+	static List<Completion> sortCompletions(List<Completion> completions,
+			List<Completion> parentCompletions,
+			Comparator<Completion> comparator, boolean removeDuplicates) {
+
+		Completion[] all = new Completion[completions.size()];
+		copyUnsorted(completions, all, 0);
+		SortedCompletionList sorted = new PartiallySortedList(all, comparator);
+		if (parentCompletions==null || parentCompletions.isEmpty()) {
+			return sorted;
+		}
+
+		SortedCompletionList sortedParent =
+				toSortedList(parentCompletions, comparator);
+		if (all.length==0) {
+			return sortedParent;
+		}
+
+		List<SortedCompletionList> sources =
+				new ArrayList<SortedCompletionList>(2);
+		sources.add(sorted);
+		sources.add(sortedParent);
+		return new MergedCompletionList(sources, comparator,
+				removeDuplicates);
+
+	}
+
+
+	/**
+	 * Returns the order to sort completions matching the already-entered
+	 * text in.  Prefix matchers score every match the same, so there is
+	 * nothing to score.  Otherwise, completions are only scored as the sort
+	 * actually compares them, which is usually just the first page.<p>
+	 *
+	 * This reads the matchers of this provider and its parents, so it
+	 * should be called on the Event Dispatch Thread.
+	 *
+	 * @param text The already-entered text.  This may be <code>null</code>.
+	 * @return The comparator.
+	 */
+	Comparator<Completion> createComparator(String text) {
+		if (text!=null && text.length()>0 && !isPrefixMatchedChain()) {
+			return new MatchScoreComparator(text);
+		}
+		return sortByRelevanceComparator;
+	}
+
+
+	/**
+	 * Returns whether this provider's completions for some already-entered
+	 * text are exactly those of its completions for a shorter prefix of
+	 * that text that match it.  If so, {@link AutoCompletion} only asks
+	 * this provider for completions once per word being typed, and narrows
+	 * them down itself as the user types further.  This implementation
+	 * returns <code>false</code>, since subclasses may use other context
+	 * than the already-entered text.
+	 *
+	 * @return Whether typing further only narrows down the completions.
+	 */
+	public boolean isPrefixMonotone() {
+		return false;
+	}
+
+
+	/**
+	 * Returns whether this provider and all of its parents use prefix
+	 * matchers, in which case all of their matches score the same.
+	 *
+	 * @return Whether all the providers use prefix matchers.
+	 */
+	private boolean isPrefixMatchedChain() {
+		for (CompletionProvider p=this; p!=null; p=p.getParent()) {
+			if (!Util.getCompletionMatcher(p).isPrefixMatcher()) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+
+	/**
+	 * Returns completions as a list lazily sorted in some order.  Lists
+	 * returned by {@link #sortCompletions(List, List, String)} are returned
+	 * as-is if they are already sorted in that order, that is, if they
+	 * haven't been modified and their comparator is equal to
+	 * <code>comparator</code>.
+	 *
+	 * @param completions The completions.
+	 * @param comparator The order to sort the completions in.
+	 * @return The sorted completions.
+	 */
+	private static SortedCompletionList toSortedList(
+			List<Completion> completions, Comparator<Completion> comparator) {
+		if (completions instanceof SortedCompletionList) {
+			SortedCompletionList scl = (SortedCompletionList)completions;
+			if (!scl.isModified() && comparator.equals(scl.getComparator())) {
+				return scl;
+			}
+		}
+		Completion[] all = new Completion[completions.size()];
+		copyUnsorted(completions, all, 0);
+		return new PartiallySortedList(all, comparator);
+	}
+
+
+	/**
+	 * A task whose result is already known.
+	 */
+	private static class CompletedTask implements Callable<List<Completion>> {
+
+		private List<Completion> completions;
+
+		public CompletedTask(List<Completion> completions) {
+			this.completions = completions;
+		}
+
+		public List<Completion> call() {
+			return completions;
+		}
+
+	}
+
+
 }
\ No newline at end of file
@@ -12,6 +12,8 @@ package org.fife.ui.autocomplete;
 import java.lang.reflect.Constructor;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import org.xml.sax.Attributes;
 import org.xml.sax.InputSource;
 import org.xml.sax.SAXException;
@@ -75,6 +77,19 @@ public class CompletionXMLParser extends DefaultHandler {
 	 */
 	private String funcCompletionType;
 
+	/**
+	 * Creates the completions of type {@link #funcCompletionType}.  This is
+	 * resolved once, when the type is read, and is <code>null</code> if no
+	 * type is specified or the type can't be used.
+	 */
+	private FunctionCompletionFactory funcCompletionFactory;
+
+	/**
+	 * Whether {@link #funcCompletionFactory} has failed to create a
+	 * completion yet.  Only the first failure is reported.
+	 */
+	private boolean funcCompletionFailureReported;
+
 	/**
 	 * The class loader to use to load custom completion classes, such as
 	 * the one defined by {@link #funcCompletionType}.  If this is
@@ -83,6 +98,14 @@ public class CompletionXMLParser extends DefaultHandler {
 	 */
 	private static ClassLoader DEFAULT_COMPLETION_CLASS_LOADER;
 
+	/**
+	 * Factories registered for custom function completion classes, by class
+	 * name.
+	 */
+	private static final Map<String, FunctionCompletionFactory>
+			FUNCTION_COMPLETION_FACTORIES =
+				new ConcurrentHashMap<String, FunctionCompletionFactory>();
+
 
 	/**
 	 * Constructor.
@@ -142,24 +165,16 @@ public class CompletionXMLParser extends DefaultHandler {
 	private FunctionCompletion createFunctionCompletion() {
 
 		FunctionCompletion fc = null;
-		if (funcCompletionType!=null) {
+		if (funcCompletionFactory!=null) {
 			try {
-				Class<?> clazz = null;
-				if (completionCL!=null) {
-					clazz = Class.forName(funcCompletionType, true,
-											completionCL);
-				}
-				else {
-					clazz = Class.forName(funcCompletionType);
+				fc = funcCompletionFactory.createFunctionCompletion(provider,
+						name, returnType);
+			} catch (RuntimeException re) {
+				// Report this once, not for every function
+				if (!funcCompletionFailureReported) {
+					funcCompletionFailureReported = true;
+					re.printStackTrace();
 				}
-				Constructor<?> c = clazz.getDeclaredConstructor(
-						CompletionProvider.class, String.class, String.class);
-				fc = (FunctionCompletion)c.newInstance(provider, name,
-						returnType);
-			} catch (RuntimeException re) { // FindBugs
-				throw re;
-			} catch (Exception e) {
-				e.printStackTrace();
 			}
 		}
 
@@ -296,6 +311,47 @@ public class CompletionXMLParser extends DefaultHandler {
 		throw e;
 	}
 
+
+	/**
+	 * Returns the factory to use to create function completions of a custom
+	 * class.  Unless a factory was registered for the class, its
+	 * <code>(CompletionProvider, String, String)</code> constructor is
+	 * looked up.  If the class can't be used, the error is reported.
+	 *
+	 * @param className The name of the class.
+	 * @param cl The class loader to load the class with, or
+	 *        <code>null</code> for the default.
+	 * @return The factory, or <code>null</code> if the class can't be used.
+	 * @see #registerFunctionCompletionFactory(String, FunctionCompletionFactory)
+	 */
+	static FunctionCompletionFactory getFunctionCompletionFactory(
+			String className, ClassLoader cl) {
+
+		FunctionCompletionFactory factory =
+				FUNCTION_COMPLETION_FACTORIES.get(className);
+		if (factory==null) {
+			try {
+				Class<?> clazz = null;
+				if (cl!=null) {
+					clazz = Class.forName(className, true, cl);
+				}
+				else {
+					clazz = Class.forName(className);
+				}
+				if (!FunctionCompletion.class.isAssignableFrom(clazz)) {
+					throw new ClassCastException(className +
+							" does not extend FunctionCompletion");
+				}
+				factory = new ConstructorFactory(clazz.getDeclaredConstructor(
+						CompletionProvider.class, String.class, String.class));
+			} catch (Exception e) {
+				e.printStackTrace();
+			}
+		}
+		return factory;
+
+	}
+
 	/**
 	 * Returns the completions found after parsing the XML.
 	 *
@@ -306,6 +362,21 @@ public class CompletionXMLParser extends DefaultHandler {
 	}
 
 
+	/**
+	 * Returns the completions found so far, and forgets them, so that the
+	 * completions of a large document can be used in batches while it is
+	 * being parsed.
+	 *
+	 * @return The completions found since the last call to this method.
+	 * @see #getCompletions()
+	 */
+	List<Completion> takeCompletions() {
+		List<Completion> taken = completions;
+		completions = new ArrayList<Completion>();
+		return taken;
+	}
+
+
 	/**
 	 * Returns the parameter end character specified.
 	 *
@@ -341,6 +412,26 @@ public class CompletionXMLParser extends DefaultHandler {
 	}
 
 
+	/**
+	 * Registers a factory to create function completions of a custom class
+	 * with, instead of calling the class's constructor via reflection.
+	 *
+	 * @param className The name of the class, as specified by a
+	 *        <code>functionCompletionType</code> element.
+	 * @param factory The factory, or <code>null</code> to unregister the
+	 *        current one.
+	 */
+	public static void registerFunctionCompletionFactory(String className,
+			FunctionCompletionFactory factory) {
+		if (factory==null) {
+			FUNCTION_COMPLETION_FACTORIES.remove(className);
+		}
+		else {
+			FUNCTION_COMPLETION_FACTORIES.put(className, factory);
+		}
+	}
+
+
 	/**
 	 * Resets this parser to grab more completions.
 	 *
@@ -432,6 +523,8 @@ public class CompletionXMLParser extends DefaultHandler {
 		else if (inCompletionTypes) {
 			if ("functionCompletionType".equals(qName)) {
 				funcCompletionType = attrs.getValue("type");
+				funcCompletionFactory = getFunctionCompletionFactory(
+						funcCompletionType, completionCL);
 			}
 		}
 	}
@@ -443,4 +536,31 @@ public class CompletionXMLParser extends DefaultHandler {
 	}
 
 
+
+	/**
+	 * Creates function completions by calling a constructor.
+	 */
+	private static final class ConstructorFactory
+								implements FunctionCompletionFactory {
+
+		private Constructor<?> c;
+
+		public ConstructorFactory(Constructor<?> c) {
+			this.c = c;
+		}
+
+		public FunctionCompletion createFunctionCompletion(
+				CompletionProvider provider, String name, String returnType) {
+			try {
+				return (FunctionCompletion)c.newInstance(provider, name,
+						returnType);
+			} catch (RuntimeException re) { // FindBugs
+				throw re;
+			} catch (Exception e) {
+				throw new IllegalStateException(e);
+			}
+		}
+
+	}
+
 }
\ No newline at end of file
@@ -15,7 +15,12 @@ import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 import javax.swing.text.BadLocationException;
 import javax.swing.text.Document;
 import javax.swing.text.Element;
@@ -78,6 +83,28 @@ public class DefaultCompletionProvider extends AbstractCompletionProvider {
 	}
 
 
+	/**
+	 * Closes streams, even if closing some of them fails.
+	 *
+	 * @param streams The streams to close.
+	 * @return The first error closing a stream, or <code>null</code> if
+	 *         they were all closed.
+	 */
+	private static IOException closeAll(List<InputStream> streams) {
+		IOException error = null;
+		for (InputStream in : streams) {
+			try {
+				in.close();
+			} catch (IOException ioe) {
+				if (error==null) {
+					error = ioe;
+				}
+			}
+		}
+		return error;
+	}
+
+
 	/**
 	 * Returns the text just before the current caret position that could be
 	 * the start of something auto-completable.<p>
@@ -267,6 +294,49 @@ public class DefaultCompletionProvider extends AbstractCompletionProvider {
 	}
 
 
+	/**
+	 * Loads completions from a catalog file, typically converted from XML
+	 * with {@link CompletionCatalog#convertXML(File, File)}.  This is much
+	 * faster than loading the XML itself, since the file is memory-mapped
+	 * and completions are only created as they are needed.
+	 *
+	 * @param file The catalog file to load from.
+	 * @throws IOException If an IO error occurs.
+	 * @see #loadFromCatalog(File, ClassLoader)
+	 */
+	public void loadFromCatalog(File file) throws IOException {
+		loadFromCatalog(file, null);
+	}
+
+
+	/**
+	 * Loads completions from a catalog file, typically converted from XML
+	 * with {@link CompletionCatalog#convertXML(File, File)}.  Completions
+	 * are only created as they are needed, as long as this provider holds
+	 * no other completions.  Listing all completions, as is done when the
+	 * already-entered text is empty, creates every one of them.
+	 *
+	 * @param file The catalog file to load from.
+	 * @param cl The class loader to use when loading any custom
+	 *        {@link FunctionCompletion}s.  This may be <code>null</code> if
+	 *        the default is to be used.
+	 * @throws IOException If an IO error occurs.
+	 * @see #loadFromCatalog(File)
+	 */
+	public void loadFromCatalog(File file, ClassLoader cl) throws IOException {
+		CompletionCatalog catalog = CompletionCatalog.open(file, cl);
+		addPresortedCompletions(catalog.getCompletions(this));
+		char startChar = catalog.getParamStartChar();
+		if (startChar!=0) {
+			char endChar = catalog.getParamEndChar();
+			String sep = catalog.getParamSeparator();
+			if (endChar!=0 && sep!=null && sep.length()>0) { // Sanity
+				setParameterizedCompletionParams(startChar, sep, endChar);
+			}
+		}
+	}
+
+
 	/**
 	 * Loads completions from an XML file.  The XML should validate against
 	 * <code>CompletionXml.dtd</code>.
@@ -312,33 +382,187 @@ public class DefaultCompletionProvider extends AbstractCompletionProvider {
 
 		//long start = System.currentTimeMillis();
 
-		SAXParserFactory factory = SAXParserFactory.newInstance();
-		factory.setValidating(true);
-		CompletionXMLParser handler = new CompletionXMLParser(this, cl);
 		BufferedInputStream bin = new BufferedInputStream(in);
 		try {
-			SAXParser saxParser = factory.newSAXParser();
-			saxParser.parse(bin, handler);
+			CompletionXMLParser handler = new CompletionXMLParser(this, cl);
+			parseXML(bin, handler);
 			List<Completion> completions =  handler.getCompletions();
 			addCompletions(completions);
-			char startChar = handler.getParamStartChar();
-			if (startChar!=0) {
-				char endChar = handler.getParamEndChar();
-				String sep = handler.getParamSeparator();
-				if (endChar!=0 && sep!=null && sep.length()>0) { // Sanity
-					setParameterizedCompletionParams(startChar, sep, endChar);
+			if (hasParamChars(handler)) {
+				setParameterizedCompletionParams(handler.getParamStartChar(),
+						handler.getParamSeparator(),
+						handler.getParamEndChar());
+			}
+		} finally {
+			//long time = System.currentTimeMillis() - start;
+			//System.out.println("XML loaded in: " + time + "ms");
+			bin.close();
+		}
+
+	}
+
+
+	/**
+	 * Loads completions from several XML input streams at once.  Each XML
+	 * should validate against <code>CompletionXml.dtd</code>.  The streams
+	 * are parsed in parallel, and the completions from all of them are
+	 * added to this provider in one step, which is much faster than calling
+	 * {@link #loadFromXML(InputStream, ClassLoader)} for each of them.<p>
+	 *
+	 * Only one set of parameter list characters can be used.  The first
+	 * stream (in iteration order) whose <code>environment</code> specifies
+	 * all of them decides them, and streams that don't specify them use
+	 * them as well.  If another stream specifies different ones, an
+	 * <code>IOException</code> is thrown.  In that case, or if any stream
+	 * can't be loaded, no completions are added.  All streams are closed.
+	 *
+	 * @param ins The input streams to read from.
+	 * @param cl The class loader to use when loading any extra classes
+	 *        defined in the XML, such as custom {@link FunctionCompletion}s.
+	 *        This may be <code>null</code> if the default is to be used, or
+	 *        if no custom completions are defined in the XML.
+	 * @throws IOException If an IO error occurs, or the streams specify
+	 *         different parameter list characters.
+	 * @see #loadFromXML(InputStream, ClassLoader)
+	 */
+	public void loadFromXML(Collection<? extends InputStream> ins,
+			ClassLoader cl) throws IOException {
+
+		List<InputStream> streams = new ArrayList<InputStream>(ins);
+		int count = streams.size();
+		if (count==0) {
+			return;
+		}
+
+		CompletionXMLParser[] handlers = new CompletionXMLParser[count];
+		IOException[] errors = new IOException[count];
+		List<Completion> completions;
+		int threads = Math.min(count,
+				Runtime.getRuntime().availableProcessors());
+		ForkJoinPool pool = new ForkJoinPool(threads);
+		IOException closeError;
+		try {
+			completions = pool.invoke(new XMLLoadTask(this, cl, streams,
+					0, count, handlers, errors));
+		} finally {
+			pool.shutdown();
+			// Don't let a failure to close hide a failure to parse
+			closeError = closeAll(streams);
+		}
+
+		CompletionXMLParser paramChars = null;
+		for (int i=0; i<count; i++) {
+			if (errors[i]!=null) {
+				throw errors[i];
+			}
+			CompletionXMLParser handler = handlers[i];
+			if (hasParamChars(handler)) {
+				if (paramChars==null) {
+					paramChars = handler;
+				}
+				else if (handler.getParamStartChar()!=
+							paramChars.getParamStartChar() ||
+						handler.getParamEndChar()!=
+							paramChars.getParamEndChar() ||
+						!handler.getParamSeparator().equals(
+							paramChars.getParamSeparator())) {
+					throw new IOException("XML stream " + i +
+						" specifies different parameter list characters " +
+						"than a previous stream");
 				}
 			}
+		}
+		if (closeError!=null) {
+			throw closeError;
+		}
+
+		addPresortedCompletions(completions);
+		if (paramChars!=null) {
+			setParameterizedCompletionParams(paramChars.getParamStartChar(),
+					paramChars.getParamSeparator(),
+					paramChars.getParamEndChar());
+		}
+
+	}
+
+
+	/**
+	 * Loads completions from an XML input stream in the background.  The
+	 * XML should validate against <code>CompletionXml.dtd</code>.  This
+	 * method returns immediately.  Completions are added to this provider
+	 * in batches as they are parsed, so the first ones can be used long
+	 * before the whole XML is read.<p>
+	 *
+	 * Batches are added on the Event Dispatch Thread, where the listener is
+	 * notified as well.  If the EDT falls behind, parsing waits for it, so
+	 * no more than a few batches are ever waiting to be added.  Interrupting
+	 * the parsing thread, for example by calling <code>shutdownNow()</code>
+	 * on an <code>ExecutorService</code>, stops the loading.  If the executor
+	 * runs the parsing on the EDT itself, for example because it runs tasks
+	 * on the calling thread, the XML is loaded before this method returns,
+	 * and each batch is added as soon as it is parsed.
+	 *
+	 * @param in The input stream to read from.  This is closed when loading
+	 *        is done.
+	 * @param cl The class loader to use when loading any extra classes
+	 *        defined in the XML, such as custom {@link FunctionCompletion}s.
+	 *        This may be <code>null</code> if the default is to be used, or
+	 *        if no custom completions are defined in the XML.
+	 * @param executor The executor to parse the XML on.  If this is
+	 *        <code>null</code>, a new thread is started.
+	 * @param listener Notified as completions are added and when loading
+	 *        is done.  This may be <code>null</code>.
+	 * @see #loadFromXML(InputStream, ClassLoader)
+	 */
+	public void loadFromXMLIncrementally(InputStream in, ClassLoader cl,
+			Executor executor, CompletionLoadListener listener) {
+		Runnable loader = new IncrementalXMLLoader(this, in, cl, listener);
+		if (executor!=null) {
+			executor.execute(loader);
+		}
+		else {
+			Thread t = new Thread(loader, "CompletionXMLLoader");
+			t.setDaemon(true);
+			t.start();
+		}
+	}
+
+
+	/**
+	 * Parses XML describing completions for this provider.
+	 *
+	 * @param in The input stream to read from.  This is not closed.
+	 * @param handler The parser, which collects the completions and the
+	 *        parameter list characters read.
+	 * @throws IOException If an IO error occurs, or the XML is invalid.
+	 */
+	void parseXML(InputStream in, CompletionXMLParser handler)
+			throws IOException {
+		SAXParserFactory factory = SAXParserFactory.newInstance();
+		factory.setValidating(true);
+		try {
+			SAXParser saxParser = factory.newSAXParser();
+			saxParser.parse(in, handler);
 		} catch (SAXException se) {
 			throw new IOException(se.toString());
 		} catch (ParserConfigurationException pce) {
 			throw new IOException(pce.toString());
-		} finally {
-			//long time = System.currentTimeMillis() - start;
-			//System.out.println("XML loaded in: " + time + "ms");
-			bin.close();
 		}
+	}
+
 
+	/**
+	 * Returns whether parsed XML specified all of the parameter list
+	 * characters.
+	 *
+	 * @param handler The parser.
+	 * @return Whether all characters were specified.
+	 */
+	static boolean hasParamChars(CompletionXMLParser handler) {
+		String sep = handler.getParamSeparator();
+		return handler.getParamStartChar()!=0 &&
+				handler.getParamEndChar()!=0 &&
+				sep!=null && sep.length()>0; // Sanity
 	}
 
 
@@ -370,4 +594,66 @@ public class DefaultCompletionProvider extends AbstractCompletionProvider {
 	}
 
 
+
+	/**
+	 * Parses a range of XML streams, splitting it in two until a single
+	 * stream is left.  Each stream's completions are sorted, and the
+	 * sorted runs are merged as the halves are joined.
+	 */
+	private static final class XMLLoadTask
+								extends RecursiveTask<List<Completion>> {
+
+		private DefaultCompletionProvider provider;
+		private ClassLoader cl;
+		private List<InputStream> streams;
+		private int from;
+		private int to;
+		private CompletionXMLParser[] handlers;
+		private IOException[] errors;
+
+		public XMLLoadTask(DefaultCompletionProvider provider,
+				ClassLoader cl, List<InputStream> streams, int from, int to,
+				CompletionXMLParser[] handlers, IOException[] errors) {
+			this.provider = provider;
+			this.cl = cl;
+			this.streams = streams;
+			this.from = from;
+			this.to = to;
+			this.handlers = handlers;
+			this.errors = errors;
+		}
+
+		@Override
+		protected List<Completion> compute() {
+
+			if (to-from>1) {
+				int mid = (from + to) >>> 1;
+				XMLLoadTask left = new XMLLoadTask(provider, cl, streams,
+						from, mid, handlers, errors);
+				XMLLoadTask right = new XMLLoadTask(provider, cl, streams,
+						mid, to, handlers, errors);
+				left.fork();
+				List<Completion> rightResult = right.compute();
+				return merge(left.join(), rightResult);
+			}
+
+			// Errors are reported by the caller, in the streams' order
+			List<Completion> completions = new ArrayList<Completion>(0);
+			try {
+				CompletionXMLParser handler =
+						new CompletionXMLParser(provider, cl);
+				provider.parseXML(new BufferedInputStream(streams.get(from)),
+						handler);
+				handlers[from] = handler;
+				completions = handler.getCompletions();
+				Collections.sort(completions, SORT_COMPARATOR);
+			} catch (IOException ioe) {
+				errors[from] = ioe;
+			}
+			return completions;
+
+		}
+
+	}
+
 }
\ No newline at end of file
@@ -0,0 +1,489 @@
+/*
+ * 10/17/2026
+ *
+ * FastCompletionCellRenderer.java - Cell renderer that paints completions
+ * directly instead of rendering them as HTML.
+ *
+ * This library is distributed under a modified BSD license.  See the included
+ * RSyntaxTextArea.License.txt file for details.
+ */
+package org.fife.ui.autocomplete;
+
+import java.awt.Color;
+import java.awt.Component;
+import java.awt.Dimension;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.Insets;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.Toolkit;
+import java.util.Arrays;
+import java.util.Map;
+
+import javax.swing.DefaultListCellRenderer;
+import javax.swing.Icon;
+import javax.swing.JList;
+
+/**
+ * A {@link CompletionCellRenderer} that paints completions itself rather
+ * than having Swing render them as HTML. Each completion is laid out as a
+ * sequence of runs of text, such as a function's name, its parameter types
+ * and its return type, each painted in the same color the HTML would have
+ * used. Nothing is parsed, and no strings are built, so this renderer is
+ * much faster and creates much less garbage than its superclass when
+ * scrolling through thousands of completions.
+ * <p>
+ *
+ * To use it, pass an instance to
+ * {@link AutoCompletion#setListCellRenderer(javax.swing.ListCellRenderer)}.
+ * When a delegate renderer is set (for example, for Substance), the delegate
+ * must be given the completion's text, so this renderer falls back to the
+ * HTML rendering of its superclass.
+ * <p>
+ *
+ * Subclasses overriding the <code>prepareForXXX()</code> methods should
+ * either call {@link #clearRuns()} and {@link #addRun(String, int)} to lay
+ * out their completions, or call <code>setText()</code> as with the
+ * superclass.
+ *
+ * @version 1.0
+ */
+public class FastCompletionCellRenderer extends CompletionCellRenderer {
+
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Style for text painted in the foreground color.
+	 */
+	protected static final int STYLE_DEFAULT = 0;
+
+	/**
+	 * Style for text painted in the parameter color.
+	 *
+	 * @see #getParamColor()
+	 */
+	protected static final int STYLE_PARAM = 1;
+
+	/**
+	 * Style for text painted in the type color.
+	 *
+	 * @see #getTypeColor()
+	 */
+	protected static final int STYLE_TYPE = 2;
+
+	/**
+	 * The runs of text of the completion being rendered.
+	 */
+	private String[] runs;
+
+	/**
+	 * The style of each run in {@link #runs}.
+	 */
+	private int[] runStyles;
+
+	/**
+	 * The number of runs of the completion being rendered. If this is
+	 * <code>0</code>, the text of this label is rendered as usual.
+	 */
+	private int runCount;
+
+	/**
+	 * The font {@link #metrics} are for.
+	 */
+	private transient Font metricsFont;
+
+	/**
+	 * The metrics of the font used to measure and paint runs.
+	 */
+	private transient FontMetrics metrics;
+
+	/**
+	 * The parameter and type colors, decoded. These are <code>null</code>
+	 * until they are needed.
+	 */
+	private transient Color paramColor;
+	private transient Color typeColor;
+
+	/**
+	 * Separates a function's return type or a variable's type from its name.
+	 */
+	private static final String TYPE_SEPARATOR = " : ";
+
+	/**
+	 * Separates a completion's short description from its input text.
+	 */
+	private static final String DESCRIPTION_SEPARATOR = " - ";
+
+	/**
+	 * Strings for ASCII characters, such as the parameter list start and end
+	 * characters, so they aren't created for each completion.
+	 */
+	private static final String[] CHAR_STRINGS = new String[128];
+
+	static {
+		for (char ch = 0; ch < CHAR_STRINGS.length; ch++) {
+			CHAR_STRINGS[ch] = String.valueOf(ch);
+		}
+	}
+
+	/**
+	 * Constructor.
+	 */
+	public FastCompletionCellRenderer() {
+		runs = new String[16];
+		runStyles = new int[16];
+	}
+
+	/**
+	 * Constructor. A delegate renderer has to render completions as text, so
+	 * this renderer will render them as HTML, just like its superclass.
+	 *
+	 * @param delegate
+	 *            The delegate renderer.
+	 */
+	public FastCompletionCellRenderer(DefaultListCellRenderer delegate) {
+		super(delegate);
+		runs = new String[16];
+		runStyles = new int[16];
+	}
+
+	/**
+	 * Adds a run of text to the completion being rendered.
+	 *
+	 * @param text
+	 *            The text of the run. If this is <code>null</code>, nothing
+	 *            is added.
+	 * @param style
+	 *            The style of the run; one of {@link #STYLE_DEFAULT},
+	 *            {@link #STYLE_PARAM} or {@link #STYLE_TYPE}.
+	 * @see #clearRuns()
+	 */
+	protected void addRun(String text, int style) {
+		if (text == null || text.length() == 0) {
+			return;
+		}
+		if (runCount == runs.length) {
+			runs = Arrays.copyOf(runs, runCount * 2);
+			runStyles = Arrays.copyOf(runStyles, runCount * 2);
+		}
+		runs[runCount] = text;
+		runStyles[runCount] = style;
+		runCount++;
+	}
+
+	/**
+	 * Adds a run of one character to the completion being rendered.
+	 *
+	 * @param ch
+	 *            The character. If this is <code>0</code>, nothing is added.
+	 * @param style
+	 *            The style of the run.
+	 */
+	private void addRun(char ch, int style) {
+		if (ch != 0) {
+			addRun(ch < CHAR_STRINGS.length ? CHAR_STRINGS[ch] : String.valueOf(ch), style);
+		}
+	}
+
+	/**
+	 * Removes all runs of text. This is called before each completion is
+	 * prepared.
+	 *
+	 * @see #addRun(String, int)
+	 */
+	protected void clearRuns() {
+		Arrays.fill(runs, 0, runCount, null);
+		runCount = 0;
+	}
+
+	/**
+	 * Returns the color to paint a run of text with.
+	 *
+	 * @param style
+	 *            The style of the run.
+	 * @return The color.
+	 */
+	private Color getColor(int style) {
+		switch (style) {
+		case STYLE_PARAM:
+			if (paramColor == null) {
+				paramColor = getParamColor();
+			}
+			return paramColor;
+		case STYLE_TYPE:
+			if (typeColor == null) {
+				typeColor = getTypeColor();
+			}
+			return typeColor;
+		default:
+			return getForeground();
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Component getListCellRendererComponent(JList<?> list, Object value, int index,
+			boolean selected, boolean hasFocus) {
+		clearRuns();
+		return super.getListCellRendererComponent(list, value, index, selected, hasFocus);
+	}
+
+	/**
+	 * Returns the metrics of the current font, creating them only if the font
+	 * changed.
+	 *
+	 * @return The font metrics.
+	 */
+	private FontMetrics getMetrics() {
+		Font font = getFont();
+		if (metrics == null || font != metricsFont) {
+			metrics = getFontMetrics(font);
+			metricsFont = font;
+		}
+		return metrics;
+	}
+
+	/**
+	 * Overridden to measure the runs of text, if there are any.
+	 *
+	 * @return The preferred size of this renderer.
+	 */
+	@Override
+	public Dimension getPreferredSize() {
+
+		if (runCount == 0) {
+			return super.getPreferredSize();
+		}
+
+		FontMetrics fm = getMetrics();
+		int width = 0;
+		for (int i = 0; i < runCount; i++) {
+			width += fm.stringWidth(runs[i]);
+		}
+		int height = fm.getHeight();
+
+		Icon icon = getIcon();
+		if (icon != null) {
+			width += icon.getIconWidth() + getIconTextGap();
+			height = Math.max(height, icon.getIconHeight());
+		}
+		Insets insets = getInsets();
+		width += insets.left + insets.right;
+		height += insets.top + insets.bottom;
+		return new Dimension(width, height);
+
+	}
+
+	/**
+	 * Returns whether completions are rendered as HTML by the superclass
+	 * rather than painted as runs of text.
+	 *
+	 * @return Whether to use HTML.
+	 */
+	private boolean isRenderingHtml() {
+		return getDelegateRenderer() != null;
+	}
+
+	/**
+	 * Paints the runs of text of the completion being rendered, if there are
+	 * any. Text is vertically centered and antialiased the same way HTML
+	 * would be.
+	 */
+	@Override
+	protected void paintText(Graphics g, String text, Rectangle textR) {
+
+		if (runCount == 0) {
+			super.paintText(g, text, textR);
+			return;
+		}
+
+		Graphics2D g2d = (Graphics2D) g;
+		Map<?, ?> hints = (Map<?, ?>) Toolkit.getDefaultToolkit().getDesktopProperty("awt.font.desktophints");
+		if (hints != null) {
+			g2d.addRenderingHints(hints);
+		} else {
+			g2d.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+		}
+
+		FontMetrics fm = getMetrics();
+		g.setFont(metricsFont);
+		int x = textR.x;
+		int y = textR.y + (textR.height - fm.getHeight()) / 2 + fm.getAscent();
+		int maxX = textR.x + textR.width;
+		for (int i = 0; i < runCount && x < maxX; i++) {
+			g.setColor(getColor(runStyles[i]));
+			g.drawString(runs[i], x, y);
+			x += fm.stringWidth(runs[i]);
+		}
+
+	}
+
+	/**
+	 * Lays out a function completion as runs of text.
+	 */
+	@Override
+	protected void prepareForFunctionCompletion(JList<?> list, FunctionCompletion fc, int index, boolean selected,
+			boolean hasFocus) {
+
+		if (isRenderingHtml()) {
+			super.prepareForFunctionCompletion(list, fc, index, selected, hasFocus);
+			return;
+		}
+
+		int paramStyle = selected ? STYLE_DEFAULT : STYLE_PARAM;
+		CompletionProvider provider = fc.getProvider();
+		addRun(fc.getName(), STYLE_DEFAULT);
+		addRun(provider.getParameterListStart(), STYLE_DEFAULT);
+
+		int paramCount = fc.getParamCount();
+		for (int i = 0; i < paramCount; i++) {
+			FunctionCompletion.Parameter param = fc.getParam(i);
+			String type = param.getType();
+			String name = param.getName();
+			if (type != null) {
+				addRun(type, paramStyle);
+				if (name != null) {
+					addRun(' ', STYLE_DEFAULT);
+				}
+			}
+			addRun(name, STYLE_DEFAULT);
+			if (i < paramCount - 1) {
+				addRun(provider.getParameterListSeparator(), STYLE_DEFAULT);
+			}
+		}
+
+		addRun(provider.getParameterListEnd(), STYLE_DEFAULT);
+		if (getShowTypes() && fc.getType() != null) {
+			addRun(TYPE_SEPARATOR, STYLE_DEFAULT);
+			addRun(fc.getType(), selected ? STYLE_DEFAULT : STYLE_TYPE);
+		}
+
+		setText(fc.getName());
+
+	}
+
+	/**
+	 * Lays out a markup tag completion as runs of text.
+	 */
+	@Override
+	protected void prepareForMarkupTagCompletion(JList<?> list, MarkupTagCompletion mc, int index,
+			boolean selected, boolean hasFocus) {
+
+		if (isRenderingHtml()) {
+			super.prepareForMarkupTagCompletion(list, mc, index, selected, hasFocus);
+			return;
+		}
+
+		addRun(mc.getName(), STYLE_DEFAULT);
+		setText(mc.getName());
+
+	}
+
+	/**
+	 * Lays out a completion not specifically handled elsewhere as runs of
+	 * text.
+	 */
+	@Override
+	protected void prepareForOtherCompletion(JList<?> list, Completion c, int index, boolean selected,
+			boolean hasFocus) {
+
+		if (isRenderingHtml()) {
+			super.prepareForOtherCompletion(list, c, index, selected, hasFocus);
+			return;
+		}
+
+		addRun(c.getInputText(), STYLE_DEFAULT);
+		if (c instanceof BasicCompletion) {
+			prepareDescription(((BasicCompletion) c).getShortDescription(), selected);
+		}
+		setText(c.getInputText());
+
+	}
+
+	/**
+	 * Adds the runs of text for a completion's short description.
+	 *
+	 * @param description
+	 *            The description. This may be <code>null</code>.
+	 * @param selected
+	 *            Whether the completion is selected.
+	 */
+	private void prepareDescription(String description, boolean selected) {
+		if (description != null) {
+			addRun(DESCRIPTION_SEPARATOR, STYLE_DEFAULT);
+			addRun(description, selected ? STYLE_DEFAULT : STYLE_TYPE);
+		}
+	}
+
+	/**
+	 * Lays out a template completion as runs of text.
+	 */
+	@Override
+	protected void prepareForTemplateCompletion(JList<?> list, TemplateCompletion tc, int index, boolean selected,
+			boolean hasFocus) {
+
+		if (isRenderingHtml()) {
+			super.prepareForTemplateCompletion(list, tc, index, selected, hasFocus);
+			return;
+		}
+
+		addRun(tc.getInputText(), STYLE_DEFAULT);
+		prepareDescription(tc.getShortDescription(), selected);
+		setText(tc.getInputText());
+
+	}
+
+	/**
+	 * Lays out a variable completion as runs of text.
+	 */
+	@Override
+	protected void prepareForVariableCompletion(JList<?> list, VariableCompletion vc, int index, boolean selected,
+			boolean hasFocus) {
+
+		if (isRenderingHtml()) {
+			super.prepareForVariableCompletion(list, vc, index, selected, hasFocus);
+			return;
+		}
+
+		addRun(vc.getName(), STYLE_DEFAULT);
+		if (getShowTypes() && vc.getType() != null) {
+			addRun(TYPE_SEPARATOR, STYLE_DEFAULT);
+			addRun(vc.getType(), selected ? STYLE_DEFAULT : STYLE_TYPE);
+		}
+		setText(vc.getName());
+
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void setParamColor(Color color) {
+		super.setParamColor(color);
+		paramColor = null;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void setTypeColor(Color color) {
+		super.setTypeColor(color);
+		typeColor = null;
+	}
+
+	/**
+	 * Overridden to pick up the new Look and Feel's colors.
+	 */
+	@Override
+	public void updateUI() {
+		super.updateUI();
+		paramColor = typeColor = null;
+	}
+
+}
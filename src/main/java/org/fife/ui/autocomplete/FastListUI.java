@@ -11,11 +11,19 @@
 package org.fife.ui.autocomplete;
 
 import java.awt.Color;
+import java.awt.Component;
 import java.awt.Dimension;
+import java.awt.Font;
+import java.awt.Graphics;
+import java.awt.Rectangle;
 import java.awt.SystemColor;
+import java.util.Map;
+import java.util.Random;
 import javax.swing.JViewport;
 import javax.swing.ListCellRenderer;
 import javax.swing.ListModel;
+import javax.swing.ListSelectionModel;
+import javax.swing.SwingUtilities;
 import javax.swing.UIManager;
 import javax.swing.plaf.basic.BasicListUI;
 
@@ -30,6 +38,12 @@ import javax.swing.plaf.basic.BasicListUI;
  * is bad for lists that are repeatedly hidden and re-displayed, such as
  * completion choices.  This is all because the calculation to get the
  * preferred size of each list item, when it is displayed with HTML, is slow.
+ * <p>
+ *
+ * The estimated width is that of the widest of the visible items and a random
+ * sample of the others.  As further items are painted, the list is widened if
+ * necessary.  The width of each item is remembered, so each completion is
+ * only measured once, even across refreshes of the list.
  *
  * @author Robert Futrell
  * @version 1.0
@@ -55,6 +69,57 @@ class FastListUI extends BasicListUI {
 	 */
 	private static final int ESTIMATION_THRESHOLD		= 200;
 
+	/**
+	 * The number of random items measured when estimating the cell width, in
+	 * addition to the visible ones.
+	 */
+	private static final int SAMPLE_SIZE				= 32;
+
+	/**
+	 * The number of item widths remembered.
+	 */
+	private static final int WIDTH_CACHE_SIZE			= 4096;
+
+	/**
+	 * Whether the cell size is currently estimated.
+	 */
+	private boolean estimating;
+
+	/**
+	 * The widest item painted since the cell size was last estimated.
+	 */
+	private int paintedWidth;
+
+	/**
+	 * Whether the list will be widened to {@link #paintedWidth}.
+	 */
+	private boolean widenPending;
+
+	/**
+	 * The preferred width of recently measured items.
+	 */
+	private Map<Object, Integer> widths;
+
+	/**
+	 * The renderer and font {@link #widths} were measured with.
+	 */
+	private ListCellRenderer widthsRenderer;
+	private Font widthsFont;
+
+	/**
+	 * Picks the sampled items.
+	 */
+	private Random random;
+
+
+	/**
+	 * Constructor.
+	 */
+	public FastListUI() {
+		widths = new LruCache<Object, Integer>(WIDTH_CACHE_SIZE);
+		random = new Random();
+	}
+
 
 	private Color determineSelectionBackground() {
 		Color c = UIManager.getColor("List.selectionBackground");
@@ -94,6 +159,30 @@ class FastListUI extends BasicListUI {
 	}
 
 
+	/**
+	 * Returns the preferred width of an item, measuring it only if it was not
+	 * measured before.
+	 *
+	 * @param renderer The list's renderer.
+	 * @param value The item.
+	 * @param index The index of the item.
+	 * @return The width.
+	 */
+	@SuppressWarnings("unchecked") // BasicListUI only gives us raw types
+	private int getCellWidth(ListCellRenderer renderer, Object value,
+			int index) {
+		Integer width = widths.get(value);
+		if (width==null) {
+			Component c = renderer.getListCellRendererComponent(list, value,
+												index, false, false);
+			rendererPane.add(c);
+			width = Integer.valueOf(c.getPreferredSize().width);
+			widths.put(value, width);
+		}
+		return width.intValue();
+	}
+
+
 	/**
 	 * Overridden to ensure we have selection background/foreground colors
 	 * defined, even if we're in some weirdo LAF such as Nimbus which doesn't
@@ -117,6 +206,37 @@ class FastListUI extends BasicListUI {
 	}
 
 
+	/**
+	 * Overridden to widen the list, if the cell size is estimated and an item
+	 * too wide for it was painted.
+	 */
+	@Override
+	protected void paintCell(Graphics g, int row, Rectangle rowBounds,
+			ListCellRenderer cellRenderer, ListModel dataModel,
+			ListSelectionModel selModel, int leadIndex) {
+
+		super.paintCell(g, row, rowBounds, cellRenderer, dataModel, selModel,
+				leadIndex);
+
+		if (estimating) {
+			Object value = dataModel.getElementAt(row);
+			int width = getCellWidth(cellRenderer, value, row);
+			if (width>paintedWidth) {
+				paintedWidth = width;
+				if (!widenPending) {
+					widenPending = true;
+					SwingUtilities.invokeLater(new Runnable() {
+						public void run() {
+							widen();
+						}
+					});
+				}
+			}
+		}
+
+	}
+
+
 	/**
 	 * Overridden to work around a Nimbus issue.
 	 */
@@ -152,12 +272,14 @@ class FastListUI extends BasicListUI {
 		// machines, go ahead and use the super implementation to determine
 		// the optimal cell sizes.
 		if (itemCount<ESTIMATION_THRESHOLD) {
+			estimating = false;
 			super.updateLayoutState();
 			return;
 		}
 
 		// Otherwise, assume all cells are the same height as the first cell,
-		// and estimate the necessary width.
+		// and estimate the necessary width from the visible cells and a
+		// sample of the others.
 
 		ListCellRenderer renderer = list.getCellRenderer();
 
@@ -177,12 +299,78 @@ class FastListUI extends BasicListUI {
 			rendererPane.add(c);
 			Dimension cellSize = c.getPreferredSize();
 			cellHeight = cellSize.height;
-			cellWidth = Math.max(cellWidth, cellSize.width);
+			cellWidth = Math.max(cellWidth, estimateCellWidth(renderer, model));
 		}
 		else {
 			cellHeight = 20; 
 		}
 
+		estimating = true;
+		paintedWidth = cellWidth;
+
+	}
+
+
+	/**
+	 * Returns the width of the widest of the visible items and a random
+	 * sample of the others.  This requires {@link #cellHeight} to be known.
+	 *
+	 * @param renderer The list's renderer.
+	 * @param model The list's model.
+	 * @return The width.
+	 */
+	private int estimateCellWidth(ListCellRenderer renderer, ListModel model) {
+
+		if (renderer!=widthsRenderer || list.getFont()!=widthsFont) {
+			widths.clear();
+			widthsRenderer = renderer;
+			widthsFont = list.getFont();
+		}
+
+		// Before the list is first displayed, its visible rect is empty
+		int itemCount = model.getSize();
+		Rectangle visible = list.getVisibleRect();
+		int first = 0;
+		int rows = list.getVisibleRowCount();
+		if (cellHeight>0 && visible.height>0) {
+			first = visible.y / cellHeight;
+			rows = visible.height/cellHeight + 1;
+		}
+		first = Math.min(first, itemCount-1);
+		int last = Math.min(first+rows-1, itemCount-1);
+
+		int width = 0;
+		for (int i=first; i<=last; i++) {
+			width = Math.max(width,
+					getCellWidth(renderer, model.getElementAt(i), i));
+		}
+
+		// Use the unsorted order for the sample if possible, so that the
+		// list isn't sorted beyond what is displayed.
+		CompletionListModel clm = model instanceof CompletionListModel ?
+				(CompletionListModel)model : null;
+		for (int i=0; i<SAMPLE_SIZE; i++) {
+			int index = random.nextInt(itemCount);
+			Object value = clm!=null ? clm.getElementAtUnsorted(index) :
+				model.getElementAt(index);
+			width = Math.max(width, getCellWidth(renderer, value, index));
+		}
+
+		return width;
+
+	}
+
+
+	/**
+	 * Widens the list to the widest item painted, if necessary.
+	 */
+	private void widen() {
+		widenPending = false;
+		if (estimating && paintedWidth>cellWidth) {
+			cellWidth = paintedWidth;
+			list.revalidate();
+			list.repaint();
+		}
 	}
 
 
@@ -89,6 +89,7 @@ public class FunctionCompletion extends VariableCompletion
 			sb.append("</td></tr></table></center><br><br>");
 		}
 
+		String returnValDesc = getReturnValueDescription();
 		if (returnValDesc!=null) {
 			sb.append("<b>Returns:</b><br><center><table width='90%'><tr><td>");
 			sb.append(returnValDesc);
@@ -193,7 +194,8 @@ public class FunctionCompletion extends VariableCompletion
 		if (start!=0) {
 			sb.append(start);
 		}
-		for (int i=0; i<getParamCount(); i++) {
+		int paramCount = getParamCount();
+		for (int i=0; i<paramCount; i++) {
 			Parameter param = getParam(i);
 			type = param.getType();
 			String name = param.getName();
@@ -206,7 +208,7 @@ public class FunctionCompletion extends VariableCompletion
 			if (name!=null) {
 				sb.append(name);
 			}
-			if (i<params.size()-1) {
+			if (i<paramCount-1) {
 				sb.append(provider.getParameterListSeparator());
 			}
 		}
@@ -0,0 +1,39 @@
+/*
+ * 10/17/2026
+ *
+ * FunctionCompletionFactory.java - Creates function completions of a custom
+ * type.
+ *
+ * This library is distributed under a modified BSD license.  See the included
+ * RSyntaxTextArea.License.txt file for details.
+ */
+package org.fife.ui.autocomplete;
+
+
+/**
+ * Creates {@link FunctionCompletion}s of a custom type.  When XML or a
+ * {@link CompletionCatalog} names a custom function completion class, the
+ * class is normally instantiated through its
+ * <code>(CompletionProvider, String, String)</code> constructor.  A factory
+ * registered for the class name with
+ * {@link CompletionXMLParser#registerFunctionCompletionFactory(String, FunctionCompletionFactory)}
+ * is used instead, which avoids reflection altogether.
+ *
+ * @version 1.0
+ */
+public interface FunctionCompletionFactory {
+
+
+	/**
+	 * Creates a function completion.
+	 *
+	 * @param provider The parent provider.
+	 * @param name The name of the function.
+	 * @param returnType The return type of the function.
+	 * @return The completion.
+	 */
+	public FunctionCompletion createFunctionCompletion(
+			CompletionProvider provider, String name, String returnType);
+
+
+}
@@ -0,0 +1,218 @@
+/*
+ * 10/17/2026
+ *
+ * FuzzyCompletionMatcher.java - Matches completions by camel humps, segments
+ * or subsequences of the entered text.
+ *
+ * This library is distributed under a modified BSD license.  See the included
+ * RSyntaxTextArea.License.txt file for details.
+ */
+package org.fife.ui.autocomplete;
+
+
+/**
+ * A {@link CompletionMatcher} that also matches completions that don't start
+ * with the entered text.  Matches are scored, best first, as follows:
+ *
+ * <ol>
+ *    <li>Texts starting with the entered text, ignoring case.</li>
+ *    <li>Texts whose segments' prefixes, taken in order, make up the entered
+ *        text.  Segments start at camel humps and after separators such as
+ *        underscores, so "<code>gCN</code>" matches
+ *        "<code>getColumnName</code>" and "<code>custord</code>" matches
+ *        "<code>customer_orders</code>".  Texts with fewer segments score
+ *        higher.</li>
+ *    <li>Texts containing the characters of the entered text in order.
+ *        Texts where they are spread over fewer runs score higher.</li>
+ * </ol>
+ *
+ * All comparisons ignore case.
+ *
+ * @version 1.0
+ * @see PrefixCompletionMatcher
+ */
+public class FuzzyCompletionMatcher implements CompletionMatcher {
+
+	/**
+	 * The best score of a text matched by segments.
+	 */
+	public static final int SEGMENT_MATCH = 800;
+
+	/**
+	 * The best score of a text merely containing the entered text's
+	 * characters in order.
+	 */
+	public static final int SUBSEQUENCE_MATCH = 400;
+
+	/**
+	 * The maximum number of steps spent matching a text by segments.  This
+	 * bounds the backtracking for pathological texts.
+	 */
+	private static final int MAX_SEGMENT_STEPS = 256;
+
+
+	/**
+	 * Returns the number of runs of consecutive characters of a text that the
+	 * characters of a pattern are found in, taking the first occurrence of
+	 * each.
+	 *
+	 * @param pattern The pattern.
+	 * @param text The text.
+	 * @return The number of runs, or <code>-1</code> if the text does not
+	 *         contain the pattern's characters in order.
+	 */
+	private static int countRuns(String pattern, String text) {
+		int textLen = text.length();
+		int runs = 0;
+		int ti = 0;
+		int last = -2;
+		for (int pi=0; pi<pattern.length(); pi++) {
+			char pc = Util.foldCase(pattern.charAt(pi));
+			while (ti<textLen && Util.foldCase(text.charAt(ti))!=pc) {
+				ti++;
+			}
+			if (ti==textLen) {
+				return -1;
+			}
+			if (ti!=last+1) {
+				runs++;
+			}
+			last = ti++;
+		}
+		return runs;
+	}
+
+
+	/**
+	 * Returns the number of segments in a text.
+	 *
+	 * @param text The text.
+	 * @return The number of segments.
+	 * @see #isSegmentStart(String, int)
+	 */
+	private static int countSegments(String text) {
+		int count = 0;
+		for (int i=0; i<text.length(); i++) {
+			if (isSegmentStart(text, i)) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+
+	/**
+	 * Returns <code>false</code>; this matcher matches more than prefixes.
+	 *
+	 * @return <code>false</code> always.
+	 */
+	public boolean isPrefixMatcher() {
+		return false;
+	}
+
+
+	/**
+	 * Returns whether a segment of a text starts at the specified offset.
+	 * Segments start at the beginning of the text, after characters other
+	 * than letters and digits, at upper case letters following lower case
+	 * letters or digits ("get<b>C</b>olumn"), at the last upper case letter of
+	 * a run followed by a lower case letter ("HTML<b>P</b>arser"), and at
+	 * digits following other characters.
+	 *
+	 * @param text The text.
+	 * @param offs The offset.
+	 * @return Whether a segment starts at <code>offs</code>.
+	 */
+	private static boolean isSegmentStart(String text, int offs) {
+		char ch = text.charAt(offs);
+		if (!Character.isLetterOrDigit(ch)) {
+			return false;
+		}
+		if (offs==0) {
+			return true;
+		}
+		char prev = text.charAt(offs-1);
+		if (!Character.isLetterOrDigit(prev)) {
+			return true;
+		}
+		if (Character.isUpperCase(ch)) {
+			if (!Character.isUpperCase(prev)) {
+				return true;
+			}
+			return offs+1<text.length() &&
+					Character.isLowerCase(text.charAt(offs+1));
+		}
+		return Character.isDigit(ch) && !Character.isDigit(prev);
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public int match(String pattern, String text) {
+
+		if (Util.startsWithIgnoreCase(text, pattern)) {
+			return PREFIX_MATCH;
+		}
+
+		int runs = countRuns(pattern, text);
+		if (runs<0) {
+			return NO_MATCH;
+		}
+
+		if (matchSegments(pattern, 0, text, 0, new int[] { MAX_SEGMENT_STEPS })) {
+			return SEGMENT_MATCH - Math.min(countSegments(text), 100);
+		}
+		return SUBSEQUENCE_MATCH - Math.min(runs*10, 300);
+
+	}
+
+
+	/**
+	 * Returns whether the rest of a pattern can be made up of prefixes of
+	 * the segments of the rest of a text.
+	 *
+	 * @param pattern The pattern.
+	 * @param pi The offset of the rest of the pattern.
+	 * @param text The text.
+	 * @param ti The offset of the rest of the text.  The pattern may
+	 *        continue the segment this offset is in, or start in any later
+	 *        segment.
+	 * @param budget The number of steps left, in element <code>0</code>.
+	 * @return Whether the pattern matches.
+	 */
+	private static boolean matchSegments(String pattern, int pi, String text,
+			int ti, int[] budget) {
+
+		if (pi==pattern.length()) {
+			return true;
+		}
+		if (--budget[0]<0) {
+			return false;
+		}
+
+		char pc = Util.foldCase(pattern.charAt(pi));
+		int textLen = text.length();
+
+		// Continue the current segment.
+		if (ti>0 && ti<textLen && !isSegmentStart(text, ti) &&
+				Util.foldCase(text.charAt(ti))==pc &&
+				matchSegments(pattern, pi+1, text, ti+1, budget)) {
+			return true;
+		}
+
+		// Start a later one.
+		for (int i=ti; i<textLen; i++) {
+			if (isSegmentStart(text, i) &&
+					Util.foldCase(text.charAt(i))==pc &&
+					matchSegments(pattern, pi+1, text, i+1, budget)) {
+				return true;
+			}
+		}
+
+		return false;
+
+	}
+
+
+}
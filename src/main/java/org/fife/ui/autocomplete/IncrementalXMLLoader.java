@@ -0,0 +1,310 @@
+/*
+ * 10/17/2026
+ *
+ * IncrementalXMLLoader.java - Loads completions from XML in the background,
+ * in batches.
+ *
+ * This library is distributed under a modified BSD license.  See the included
+ * RSyntaxTextArea.License.txt file for details.
+ */
+package org.fife.ui.autocomplete;
+
+import java.io.BufferedInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import javax.swing.SwingUtilities;
+
+
+/**
+ * Loads completions from XML in the background, adding them to a provider in
+ * batches as they are parsed, so the first ones can be used long before the
+ * whole document is read.<p>
+ *
+ * The XML is parsed on the thread running this loader.  Each batch of
+ * completions is sorted there, then queued for the Event Dispatch Thread,
+ * which adds it to the provider and notifies the listener.  The queue is
+ * bounded, so if the EDT falls behind, parsing waits for it rather than
+ * piling up batches.  Batches start small and double in size, so that the
+ * first completions are available quickly while the number of times the
+ * provider's completions are merged stays low.<p>
+ *
+ * If this loader is run on the EDT itself, for example by an executor that
+ * runs tasks on the calling thread, waiting for the EDT would deadlock.  In
+ * that case, each batch is added to the provider as soon as it is parsed.
+ *
+ * @version 1.0
+ * @see DefaultCompletionProvider#loadFromXMLIncrementally(InputStream, ClassLoader, java.util.concurrent.Executor, CompletionLoadListener)
+ */
+class IncrementalXMLLoader implements Runnable {
+
+	private DefaultCompletionProvider provider;
+	private CountingInputStream in;
+	private CompletionLoadListener listener;
+	private BatchingXMLParser handler;
+
+	/**
+	 * Sorted batches of completions waiting to be added to the provider.
+	 */
+	private BlockingQueue<List<Completion>> batches;
+
+	/**
+	 * Adds the queued batches to the provider.  This runs on the EDT.
+	 */
+	private Runnable publisher;
+
+	/**
+	 * The number of completions to parse before queuing them.  This is only
+	 * used by the parsing thread.
+	 */
+	private int batchSize;
+
+	/**
+	 * Whether the parsing thread is the EDT, in which case batches are
+	 * added to the provider right away instead of being queued.  This is
+	 * only used by the parsing thread.
+	 */
+	private boolean parsingOnEDT;
+
+	/**
+	 * The number of completions added to the provider.  This is only used on
+	 * the EDT.
+	 */
+	private int loadedCount;
+
+	/**
+	 * Whether the provider's parameter list characters have been set from
+	 * the XML.  This is only used on the EDT.
+	 */
+	private boolean paramCharsSet;
+
+	private static final int MIN_BATCH_SIZE		= 64;
+	private static final int MAX_BATCH_SIZE		= 8192;
+	private static final int QUEUE_CAPACITY		= 4;
+
+
+	/**
+	 * Constructor.
+	 *
+	 * @param provider The provider to add completions to.
+	 * @param in The stream to read XML from.  This is closed when loading
+	 *        is done.
+	 * @param cl The class loader to use when loading custom completion
+	 *        classes, or <code>null</code> for the default.
+	 * @param listener The listener to notify, or <code>null</code> for none.
+	 */
+	public IncrementalXMLLoader(DefaultCompletionProvider provider,
+			InputStream in, ClassLoader cl, CompletionLoadListener listener) {
+		this.provider = provider;
+		this.in = new CountingInputStream(in);
+		this.listener = listener;
+		handler = new BatchingXMLParser(provider, cl);
+		batches = new ArrayBlockingQueue<List<Completion>>(QUEUE_CAPACITY);
+		publisher = new Runnable() {
+			public void run() {
+				publishBatches();
+			}
+		};
+		batchSize = MIN_BATCH_SIZE;
+	}
+
+
+	/**
+	 * Called on the EDT when loading is done.
+	 *
+	 * @param error The error that stopped the loading, or <code>null</code>
+	 *        if there was none.
+	 */
+	private void finished(IOException error) {
+		publishBatches();
+		if (!paramCharsSet) {
+			setParamChars();
+		}
+		if (listener!=null) {
+			listener.loadFinished(error);
+		}
+	}
+
+
+	/**
+	 * Queues completions parsed since the last batch for the EDT.  If the
+	 * queue is full, this waits until the EDT catches up.  If this is the
+	 * EDT, the completions are added to the provider right away.
+	 *
+	 * @param batch The completions.
+	 * @throws CancellationException If the thread is interrupted while
+	 *         waiting.
+	 */
+	private void publish(List<Completion> batch) {
+		if (batch.isEmpty()) {
+			return;
+		}
+		Collections.sort(batch, AbstractCompletionProvider.SORT_COMPARATOR);
+		if (parsingOnEDT) {
+			batches.add(batch); // The queue is always empty here
+			publishBatches();
+		}
+		else {
+			try {
+				batches.put(batch);
+			} catch (InterruptedException ie) {
+				Thread.currentThread().interrupt();
+				throw new CancellationException();
+			}
+			SwingUtilities.invokeLater(publisher);
+		}
+		batchSize = Math.min(batchSize*2, MAX_BATCH_SIZE);
+	}
+
+
+	/**
+	 * Adds all queued batches to the provider, as a single merged list, and
+	 * notifies the listener.  This is called on the EDT.
+	 */
+	private void publishBatches() {
+
+		List<Completion> completions = batches.poll();
+		if (completions==null) {
+			return;
+		}
+		List<Completion> batch;
+		while ((batch = batches.poll())!=null) {
+			completions = AbstractCompletionProvider.merge(completions, batch);
+		}
+
+		provider.addPresortedCompletions(completions);
+		loadedCount += completions.size();
+		if (!paramCharsSet) {
+			// The environment comes before any keyword
+			setParamChars();
+		}
+		if (listener!=null) {
+			listener.completionsLoaded(loadedCount, in.getCount());
+		}
+
+	}
+
+
+	/**
+	 * Parses the XML, queuing completions for the EDT as it goes.
+	 */
+	public void run() {
+
+		parsingOnEDT = SwingUtilities.isEventDispatchThread();
+		IOException error = null;
+		try {
+			try {
+				provider.parseXML(new BufferedInputStream(in), handler);
+				publish(handler.takeCompletions());
+			} finally {
+				in.close();
+			}
+		} catch (CancellationException ce) {
+			error = new InterruptedIOException("Loading was interrupted");
+		} catch (IOException ioe) {
+			error = ioe;
+		} catch (RuntimeException re) {
+			error = new IOException(re);
+		}
+
+		if (parsingOnEDT) {
+			finished(error);
+			return;
+		}
+		final IOException finalError = error;
+		SwingUtilities.invokeLater(new Runnable() {
+			public void run() {
+				finished(finalError);
+			}
+		});
+
+	}
+
+
+	/**
+	 * Sets the provider's parameter list characters, if the XML specified
+	 * them.
+	 */
+	private void setParamChars() {
+		if (DefaultCompletionProvider.hasParamChars(handler)) {
+			provider.setParameterizedCompletionParams(
+					handler.getParamStartChar(), handler.getParamSeparator(),
+					handler.getParamEndChar());
+			paramCharsSet = true;
+		}
+	}
+
+
+	/**
+	 * Queues the completions parsed so far whenever there are enough of them
+	 * for a batch.
+	 */
+	private class BatchingXMLParser extends CompletionXMLParser {
+
+		public BatchingXMLParser(CompletionProvider provider,
+				ClassLoader cl) {
+			super(provider, cl);
+		}
+
+		@Override
+		public void endElement(String uri, String localName, String qName) {
+			super.endElement(uri, localName, qName);
+			if ("keyword".equals(qName) &&
+					getCompletions().size()>=batchSize) {
+				publish(takeCompletions());
+			}
+		}
+
+	}
+
+
+	/**
+	 * Counts the bytes read from a stream, so progress can be reported.
+	 */
+	private static class CountingInputStream extends FilterInputStream {
+
+		private volatile long count;
+
+		public CountingInputStream(InputStream in) {
+			super(in);
+		}
+
+		public long getCount() {
+			return count;
+		}
+
+		@Override
+		public int read() throws IOException {
+			int b = super.read();
+			if (b!=-1) {
+				count++;
+			}
+			return b;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			int n = super.read(b, off, len);
+			if (n>0) {
+				count += n;
+			}
+			return n;
+		}
+
+		@Override
+		public long skip(long n) throws IOException {
+			long skipped = super.skip(n);
+			count += skipped;
+			return skipped;
+		}
+
+	}
+
+
+}
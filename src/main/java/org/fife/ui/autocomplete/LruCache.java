@@ -0,0 +1,54 @@
+/*
+ * 10/17/2026
+ *
+ * LruCache.java - A map that forgets its least recently used entries.
+ *
+ * This library is distributed under a modified BSD license.  See the included
+ * RSyntaxTextArea.License.txt file for details.
+ */
+package org.fife.ui.autocomplete;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+
+/**
+ * A map holding at most a fixed number of entries.  When a new entry would
+ * exceed that number, the least recently used one is removed.  Like
+ * <code>LinkedHashMap</code>, this class is not thread-safe.
+ *
+ * @param <K> The type of keys.
+ * @param <V> The type of values.
+ * @version 1.0
+ */
+class LruCache<K, V> extends LinkedHashMap<K, V> {
+
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * The maximum number of entries.
+	 */
+	private int capacity;
+
+
+	/**
+	 * Constructor.
+	 *
+	 * @param capacity The maximum number of entries.
+	 */
+	public LruCache(int capacity) {
+		super(16, 0.75f, true);
+		this.capacity = capacity;
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+		return size()>capacity;
+	}
+
+
+}
@@ -192,6 +192,7 @@ public class MarkupTagCompletion extends AbstractCompletion {
 	 * @param sb The buffer to append to.
 	 */
 	protected void possiblyAddDescription(StringBuilder sb) {
+		String desc = getDescription();
 		if (desc!=null) {
 			sb.append("<hr><br>");
 			sb.append(desc);
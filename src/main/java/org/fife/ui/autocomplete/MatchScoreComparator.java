@@ -0,0 +1,235 @@
+/*
+ * 10/17/2026
+ *
+ * MatchScoreComparator.java - Sorts completions by how well they match the
+ * entered text.
+ *
+ * This library is distributed under a modified BSD license.  See the included
+ * RSyntaxTextArea.License.txt file for details.
+ */
+package org.fife.ui.autocomplete;
+
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * Compares completions by how well they match the entered text, best first,
+ * then by relevance, then lexicographically.  Each completion is scored by
+ * the {@link CompletionMatcher} of its own provider, and only once.  Scores
+ * are computed as completions are compared, unless they are known up front.
+ *
+ * @version 1.0
+ * @see SortByRelevanceComparator
+ */
+class MatchScoreComparator implements Comparator<Completion> {
+
+	/**
+	 * The entered text.
+	 */
+	private String pattern;
+
+	/**
+	 * The score of each completion scored so far.
+	 */
+	private Map<Completion, Integer> scores;
+
+
+	/**
+	 * Constructor.
+	 *
+	 * @param pattern The entered text.  This cannot be empty.
+	 */
+	public MatchScoreComparator(String pattern) {
+		this(pattern, new IdentityHashMap<Completion, Integer>());
+	}
+
+
+	/**
+	 * Constructor.
+	 *
+	 * @param pattern The entered text.
+	 * @param scores The score of each completion scored so far.  If this
+	 *        has every completion that will be compared, the pattern is
+	 *        not used.
+	 */
+	private MatchScoreComparator(String pattern,
+			Map<Completion, Integer> scores) {
+		this.pattern = pattern;
+		this.scores = scores;
+	}
+
+
+	public int compare(Completion c1, Completion c2) {
+		int diff = getScore(c2) - getScore(c1);
+		if (diff==0) {
+			diff = c2.getRelevance() - c1.getRelevance();
+			if (diff==0) {
+				diff = c1.compareTo(c2);
+			}
+		}
+		return diff;
+	}
+
+
+	/**
+	 * Returns whether another comparator sorts completions the same way as
+	 * this one, that is, whether it scores them against the same entered
+	 * text.  Comparators using scores computed by the caller are only equal
+	 * to themselves.
+	 *
+	 * @param o The other object.
+	 * @return Whether it is an equivalent comparator.
+	 */
+	@Override
+	public boolean equals(Object o) {
+		if (o==this) {
+			return true;
+		}
+		return pattern!=null && o instanceof MatchScoreComparator &&
+				pattern.equals(((MatchScoreComparator)o).pattern);
+	}
+
+
+	/**
+	 * Returns the score of a completion, computing it if necessary.
+	 *
+	 * @param c The completion.
+	 * @return The score.
+	 */
+	private int getScore(Completion c) {
+		Integer score = scores.get(c);
+		if (score==null) {
+			score = Integer.valueOf(score(c, pattern));
+			scores.put(c, score);
+		}
+		return score.intValue();
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int hashCode() {
+		return pattern!=null ? pattern.hashCode() : super.hashCode();
+	}
+
+
+	/**
+	 * Returns whether a completion matches the entered text, according to
+	 * its provider's matcher.
+	 *
+	 * @param c The completion.
+	 * @param pattern The entered text.  This cannot be empty.
+	 * @return Whether the completion matches.
+	 */
+	static boolean matches(Completion c, String pattern) {
+		CompletionMatcher matcher = Util.getCompletionMatcher(c.getProvider());
+		if (matcher.isPrefixMatcher()) { // Common case
+			return Util.startsWithIgnoreCase(c.getInputText(), pattern);
+		}
+		return matcher.match(pattern, c.getInputText())!=
+				CompletionMatcher.NO_MATCH;
+	}
+
+
+	/**
+	 * Returns a comparator sorting completions by how well they match the
+	 * entered text.
+	 *
+	 * @param completions The completions that will be sorted, all matching
+	 *        <code>pattern</code>.
+	 * @param pattern The entered text.  This cannot be empty.
+	 * @return The comparator, or <code>null</code> if the completions all
+	 *         match equally well.
+	 */
+	static Comparator<Completion> create(List<Completion> completions,
+			String pattern) {
+
+		int count = completions.size();
+		if (allPrefixMatched(completions)) { // Common case
+			return null;
+		}
+		Map<Completion, Integer> scores =
+				new IdentityHashMap<Completion, Integer>(count);
+		boolean uniform = true;
+		int first = 0;
+
+		for (int i=0; i<count; i++) {
+			Completion c = completions.get(i);
+			int score = score(c, pattern);
+			if (i==0) {
+				first = score;
+			}
+			else if (score!=first) {
+				uniform = false;
+			}
+			scores.put(c, Integer.valueOf(score));
+		}
+
+		return uniform ? null : new MatchScoreComparator(pattern, scores);
+
+	}
+
+
+	/**
+	 * Returns a comparator sorting completions by scores the caller has
+	 * already computed.
+	 *
+	 * @param scores The score of each completion that will be sorted.
+	 * @return The comparator, or <code>null</code> if the completions all
+	 *         scored the same.
+	 */
+	static Comparator<Completion> create(Map<Completion, Integer> scores) {
+		Integer first = null;
+		for (Integer score : scores.values()) {
+			if (first==null) {
+				first = score;
+			}
+			else if (!score.equals(first)) {
+				return new MatchScoreComparator(null, scores);
+			}
+		}
+		return null;
+	}
+
+
+	/**
+	 * Returns whether every completion's provider uses a prefix matcher, in
+	 * which case they all score {@link CompletionMatcher#PREFIX_MATCH}.
+	 *
+	 * @param completions The completions.
+	 * @return Whether they are all scored by prefix matchers.
+	 */
+	private static boolean allPrefixMatched(List<Completion> completions) {
+		CompletionProvider last = null;
+		for (int i=0; i<completions.size(); i++) {
+			CompletionProvider provider = completions.get(i).getProvider();
+			if (provider!=last) {
+				if (!Util.getCompletionMatcher(provider).isPrefixMatcher()) {
+					return false;
+				}
+				last = provider;
+			}
+		}
+		return true;
+	}
+
+
+	/**
+	 * Scores a completion with its provider's matcher.
+	 *
+	 * @param c The completion.
+	 * @param pattern The entered text.
+	 * @return The score.
+	 */
+	private static int score(Completion c, String pattern) {
+		CompletionMatcher matcher = Util.getCompletionMatcher(c.getProvider());
+		return matcher.match(pattern, c.getInputText());
+	}
+
+
+}
@@ -0,0 +1,261 @@
+/*
+ * 10/17/2026
+ *
+ * MergedCompletionList.java - Merges the sorted completions of a provider and
+ * its parents as they are read.
+ *
+ * This library is distributed under a modified BSD license.  See the included
+ * RSyntaxTextArea.License.txt file for details.
+ */
+package org.fife.ui.autocomplete;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+
+/**
+ * A list merging several sorted lists of completions, usually
+ * those of a provider and each of its ancestors.  The sources are not copied;
+ * this list does a k-way merge of them as it is read, so only as much of
+ * each source is sorted as ends up being displayed.<p>
+ *
+ * Optionally, completions with the same input text and definition as one in
+ * an earlier source are dropped, so that a provider's completions override
+ * those of its parents.  Finding these duplicates visits every completion
+ * once, but sorts nothing.
+ *
+ * @version 1.0
+ * @see CompletionProviderBase#setRemoveDuplicates(boolean)
+ */
+class MergedCompletionList extends SortedCompletionList {
+
+	/**
+	 * The lists being merged, each sorted consistently with
+	 * {@link #comparator}.
+	 */
+	private SortedCompletionList[] sources;
+
+	/**
+	 * The offset of each source's first element in the unsorted order of
+	 * this list.  There is one more element than there are sources, the
+	 * size of this list.
+	 */
+	private int[] offsets;
+
+	/**
+	 * The number of elements of each source merged so far.
+	 */
+	private int[] positions;
+
+	/**
+	 * The elements merged so far, in order.
+	 */
+	private Completion[] merged;
+
+	/**
+	 * The number of elements merged so far.
+	 */
+	private int mergedCount;
+
+	/**
+	 * The order of the elements.
+	 */
+	private Comparator<Completion> comparator;
+
+	/**
+	 * Whether duplicates were removed from the sources.
+	 */
+	private boolean duplicatesRemoved;
+
+
+	/**
+	 * Constructor.
+	 *
+	 * @param sources The lists to merge, each sorted consistently with
+	 *        <code>comparator</code>.  These should not be read by anyone
+	 *        else afterward.  If a source is an unmodified
+	 *        <code>MergedCompletionList</code> that removed duplicates the
+	 *        same way this one does, its own sources are merged instead.
+	 * @param comparator The order of the elements.
+	 * @param removeDuplicates Whether to drop completions with the same
+	 *        input text and definition as one in an earlier source.
+	 */
+	public MergedCompletionList(List<SortedCompletionList> sources,
+			Comparator<Completion> comparator, boolean removeDuplicates) {
+
+		List<SortedCompletionList> flattened =
+				new ArrayList<SortedCompletionList>(sources.size());
+		for (SortedCompletionList source : sources) {
+			if (source instanceof MergedCompletionList &&
+					!source.isModified() &&
+					((MergedCompletionList)source).duplicatesRemoved==
+						removeDuplicates) {
+				MergedCompletionList mcl = (MergedCompletionList)source;
+				for (SortedCompletionList s : mcl.sources) {
+					flattened.add(s);
+				}
+			}
+			else if (source.size()>0) {
+				flattened.add(source);
+			}
+		}
+
+		int count = flattened.size();
+		this.sources = flattened.toArray(new SortedCompletionList[count]);
+		if (removeDuplicates) {
+			removeDuplicates();
+		}
+
+		offsets = new int[count+1];
+		for (int i=0; i<count; i++) {
+			offsets[i+1] = offsets[i] + this.sources[i].size();
+		}
+		positions = new int[count];
+		merged = new Completion[offsets[count]];
+		this.comparator = comparator;
+		duplicatesRemoved = removeDuplicates;
+
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected Completion getImpl(int index) {
+		if (index>=mergedCount) {
+			if (index>=merged.length) {
+				throw new IndexOutOfBoundsException(
+						"Index: " + index + ", Size: " + merged.length);
+			}
+			mergeThrough(index);
+		}
+		return merged[index];
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Comparator<Completion> getComparator() {
+		return comparator;
+	}
+
+
+	/**
+	 * Returns the key two completions must share to be considered
+	 * duplicates.
+	 *
+	 * @param c The completion.
+	 * @return The key.
+	 */
+	private static String getDuplicateKey(Completion c) {
+		String definition = c instanceof VariableCompletion ?
+				((VariableCompletion)c).getDefinitionString() :
+				c.getReplacementText();
+		return c.getInputText() + '\0' + definition;
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected Completion getUnsortedImpl(int index) {
+		int source = sources.length - 1;
+		while (offsets[source]>index) {
+			source--;
+		}
+		return sources[source].getUnsorted(index - offsets[source]);
+	}
+
+
+	/**
+	 * Merges at least the elements up to and including an index.  With as
+	 * few sources as a chain of parent providers has, looking at the head
+	 * of each one is cheaper than maintaining a heap of them.
+	 *
+	 * @param index The index.
+	 */
+	private void mergeThrough(int index) {
+		int count = sources.length;
+		while (mergedCount<=index) {
+			int min = -1;
+			Completion minHead = null;
+			for (int i=0; i<count; i++) {
+				if (positions[i]<sources[i].size()) {
+					Completion head = sources[i].get(positions[i]);
+					if (min==-1 || comparator.compare(head, minHead)<0) {
+						min = i;
+						minHead = head;
+					}
+				}
+			}
+			positions[min]++;
+			merged[mergedCount++] = minHead;
+		}
+	}
+
+
+	/**
+	 * Drops completions from each source that are duplicates of one in an
+	 * earlier source.  Sources that lose completions are replaced by
+	 * (lazily sorted) copies.
+	 */
+	private void removeDuplicates() {
+
+		Set<String> keys = new HashSet<String>(); // Of the earlier sources
+		for (int i=0; i<sources.length; i++) {
+
+			SortedCompletionList source = sources[i];
+			int size = source.size();
+			boolean last = i==sources.length-1;
+			List<String> sourceKeys = last ? null : new ArrayList<String>(size);
+			List<Completion> kept = null;
+
+			for (int j=0; j<size; j++) {
+				Completion c = source.getUnsorted(j);
+				String key = getDuplicateKey(c);
+				boolean duplicate = keys.contains(key);
+				if (sourceKeys!=null) {
+					sourceKeys.add(key);
+				}
+				if (duplicate && kept==null) {
+					kept = new ArrayList<Completion>(size);
+					for (int k=0; k<j; k++) {
+						kept.add(source.getUnsorted(k));
+					}
+				}
+				else if (!duplicate && kept!=null) {
+					kept.add(c);
+				}
+			}
+
+			if (sourceKeys!=null) {
+				keys.addAll(sourceKeys);
+			}
+			if (kept!=null) {
+				sources[i] = new PartiallySortedList(
+						kept.toArray(new Completion[kept.size()]),
+						source.getComparator());
+			}
+
+		}
+
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected int sizeImpl() {
+		return merged.length;
+	}
+
+
+}
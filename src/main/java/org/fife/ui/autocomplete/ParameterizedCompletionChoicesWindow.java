@@ -18,7 +18,9 @@ import java.awt.event.MouseEvent;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 import javax.swing.DefaultListModel;
 import javax.swing.JList;
 import javax.swing.JScrollPane;
@@ -227,22 +229,40 @@ public class ParameterizedCompletionChoicesWindow extends JWindow {
 		
 		model.clear();
 		List<Completion> temp = new ArrayList<Completion>();
+		Map<Completion, Integer> scores = null;
 
 		if (choicesListList != null && param >= 0 && param < choicesListList.size()) {
 
 			List<Completion> choices = choicesListList.get(param);
 			if (choices != null) {
+				CompletionMatcher matcher = Util.getCompletionMatcher(
+						parameterizedCompletion.getProvider());
+				boolean filter = prefix != null && prefix.length() > 0;
+				if (filter && !matcher.isPrefixMatcher()) {
+					scores = new IdentityHashMap<Completion, Integer>();
+				}
 				for (Completion c : choices) {
-					String choice = c.getReplacementText();
-					if (prefix == null || Util.startsWithIgnoreCase(choice, prefix)) {
+					int score = CompletionMatcher.PREFIX_MATCH;
+					if (filter) {
+						score = matcher.match(prefix, c.getReplacementText());
+					}
+					if (score != CompletionMatcher.NO_MATCH) {
 						temp.add(c);
+						if (scores != null) {
+							scores.put(c, Integer.valueOf(score));
+						}
 					}
 				}
 			}
 
-			// Sort completions appropriately.
+			// Sort completions appropriately: best match first, then by
+			// relevance.  They are scored by the same matcher that filtered
+			// them.
 			Comparator<Completion> c = null;
-			if (/* sortByRelevance */true) {
+			if (scores != null) {
+				c = MatchScoreComparator.create(scores);
+			}
+			if (c == null && /* sortByRelevance */true) {
 				c = sortByRelevanceComparator;
 			}
 			Collections.sort(temp, c);
@@ -0,0 +1,192 @@
+/*
+ * 10/17/2026
+ *
+ * PartiallySortedList.java - A list of completions that is sorted one page at
+ * a time, as it is read.
+ *
+ * This library is distributed under a modified BSD license.  See the included
+ * RSyntaxTextArea.License.txt file for details.
+ */
+package org.fife.ui.autocomplete;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+
+/**
+ * A list of completions that only sorts as much of itself as has been read.
+ * The popup window only displays a screenful of completions at a time, so
+ * sorting all of them up front is usually wasted work.<p>
+ *
+ * The first access to an element past the sorted part selects the next
+ * smallest elements with a bounded heap, in <code>O(n log k)</code> time for
+ * a page of <code>k</code> elements, and sorts just those.  Pages double in
+ * size each time, and once a page would cover half of what's left, the rest
+ * is simply sorted.  Reading the whole list therefore costs little more than
+ * sorting it right away.
+ *
+ * @version 1.0
+ * @see CompletionProviderBase#sortCompletions(java.util.List, java.util.List, String)
+ */
+class PartiallySortedList extends SortedCompletionList {
+
+	/**
+	 * The elements.  Those before {@link #sortedCount} are in their final
+	 * order, the rest are in no particular order.
+	 */
+	private Completion[] items;
+
+	/**
+	 * The order of the elements.
+	 */
+	private Comparator<Completion> comparator;
+
+	/**
+	 * The number of elements in their final order.
+	 */
+	private int sortedCount;
+
+	/**
+	 * The number of elements to sort next time.
+	 */
+	private int pageSize;
+
+	/**
+	 * The number of elements sorted the first time.  This is a bit more than
+	 * a popup window displays.
+	 */
+	private static final int FIRST_PAGE_SIZE = 32;
+
+
+	/**
+	 * Constructor.
+	 *
+	 * @param items The elements, in any order.  This array is used directly,
+	 *        and should not be modified afterward.
+	 * @param comparator The order of the elements.
+	 */
+	public PartiallySortedList(Completion[] items,
+			Comparator<Completion> comparator) {
+		this.items = items;
+		this.comparator = comparator;
+		pageSize = FIRST_PAGE_SIZE;
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected Completion getImpl(int index) {
+		if (index>=sortedCount) {
+			if (index>=items.length) {
+				throw new IndexOutOfBoundsException(
+						"Index: " + index + ", Size: " + items.length);
+			}
+			sortThrough(index);
+		}
+		return items[index];
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Comparator<Completion> getComparator() {
+		return comparator;
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected Completion getUnsortedImpl(int index) {
+		return items[index];
+	}
+
+
+	/**
+	 * Moves the smallest <code>k</code> unsorted elements to the start of the
+	 * unsorted part, in no particular order.
+	 *
+	 * @param k The number of elements to select.
+	 */
+	private void selectSmallest(int k) {
+
+		// Turn the first k unsorted elements into a max-heap, then replace
+		// its top with each of the remaining elements that is smaller.
+		int from = sortedCount;
+		for (int i=k/2-1; i>=0; i--) {
+			siftDown(from, k, i);
+		}
+		for (int j=from+k; j<items.length; j++) {
+			if (comparator.compare(items[j], items[from])<0) {
+				Completion temp = items[j];
+				items[j] = items[from];
+				items[from] = temp;
+				siftDown(from, k, 0);
+			}
+		}
+
+	}
+
+
+	/**
+	 * Restores the heap property below an element of a max-heap.
+	 *
+	 * @param from The offset of the heap in {@link #items}.
+	 * @param size The size of the heap.
+	 * @param i The index of the element in the heap.
+	 */
+	private void siftDown(int from, int size, int i) {
+		Completion c = items[from+i];
+		int half = size/2;
+		while (i<half) {
+			int child = 2*i + 1;
+			int right = child + 1;
+			if (right<size &&
+					comparator.compare(items[from+right], items[from+child])>0) {
+				child = right;
+			}
+			if (comparator.compare(c, items[from+child])>=0) {
+				break;
+			}
+			items[from+i] = items[from+child];
+			i = child;
+		}
+		items[from+i] = c;
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected int sizeImpl() {
+		return items.length;
+	}
+
+
+	/**
+	 * Sorts at least the elements up to and including an index.
+	 *
+	 * @param index The index.
+	 */
+	private void sortThrough(int index) {
+		int remaining = items.length - sortedCount;
+		int k = Math.max(pageSize, index+1-sortedCount);
+		if (2*k>=remaining) { // Cheaper to sort everything that's left
+			Arrays.sort(items, sortedCount, items.length, comparator);
+			sortedCount = items.length;
+			return;
+		}
+		selectSmallest(k);
+		Arrays.sort(items, sortedCount, sortedCount+k, comparator);
+		sortedCount += k;
+		pageSize *= 2;
+	}
+
+
+}
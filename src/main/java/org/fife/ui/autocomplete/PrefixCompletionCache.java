@@ -0,0 +1,292 @@
+/*
+ * 10/17/2026
+ *
+ * PrefixCompletionCache.java - Caches completions for the word being typed,
+ * by prefix.
+ *
+ * This library is distributed under a modified BSD license.  See the included
+ * RSyntaxTextArea.License.txt file for details.
+ */
+package org.fife.ui.autocomplete;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import javax.swing.text.Document;
+
+
+/**
+ * Caches the completions for the word being typed, so the provider only has
+ * to be asked once per word.  The cache is a stack of prefixes of the word,
+ * each with the completions matching it; its bottom is the prefix the
+ * provider was asked for.  When the user types further, the completions for
+ * the longer prefix are narrowed down from those on top of the stack and
+ * pushed.  When the user deletes characters, entries are popped until one
+ * matches again.  If the provider isn't prefix-monotone, only completions for
+ * the prefix it was asked for are cached.<p>
+ *
+ * While it holds completions, the cache listens to the document, and clears
+ * itself when the document is modified anywhere other than in the word
+ * being typed.
+ *
+ * @version 1.0
+ * @see AutoCompletion
+ */
+class PrefixCompletionCache implements DocumentListener {
+
+	/**
+	 * The document being listened to, or <code>null</code> if the cache is
+	 * empty.
+	 */
+	private Document doc;
+
+	/**
+	 * The offset of the word in {@link #doc}.
+	 */
+	private int wordStart;
+
+	/**
+	 * The end offset of the word in {@link #doc}, kept up to date as the
+	 * word is edited.
+	 */
+	private int wordEnd;
+
+	/**
+	 * Whether completions for longer prefixes may be narrowed down from
+	 * those for shorter ones.
+	 */
+	private boolean narrowable;
+
+	/**
+	 * The cached prefixes, each one starting with the previous one.
+	 */
+	private List<String> prefixes;
+
+	/**
+	 * The completions matching each prefix in {@link #prefixes}.
+	 */
+	private List<List<Completion>> results;
+
+
+	/**
+	 * Constructor.
+	 */
+	public PrefixCompletionCache() {
+		prefixes = new ArrayList<String>();
+		results = new ArrayList<List<Completion>>();
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void changedUpdate(DocumentEvent e) {
+		// Ignore attribute changes
+	}
+
+
+	/**
+	 * Empties this cache.
+	 */
+	public void clear() {
+		if (doc!=null) {
+			doc.removeDocumentListener(this);
+			doc = null;
+		}
+		prefixes.clear();
+		results.clear();
+	}
+
+
+	/**
+	 * Returns those of some completions that match a prefix, according to
+	 * their providers' {@link CompletionMatcher}s.  For prefix matchers,
+	 * characters are compared in place, so no strings are created.  If the
+	 * completions don't all match the prefix equally well, the result is
+	 * sorted best match first.
+	 *
+	 * @param completions The completions to filter.
+	 * @param prefix The prefix.
+	 * @return The matching completions.  This may be
+	 *         <code>completions</code> itself if they all match.
+	 */
+	static List<Completion> filter(List<Completion> completions,
+			String prefix) {
+
+		if (prefix.length()==0) {
+			return completions;
+		}
+		if (completions instanceof SortedCompletionList &&
+				!((SortedCompletionList)completions).isModified()) {
+			return filter((SortedCompletionList)completions, prefix);
+		}
+
+		int count = completions.size();
+		List<Completion> result = new ArrayList<Completion>(count);
+		for (int i=0; i<count; i++) {
+			Completion c = completions.get(i);
+			if (MatchScoreComparator.matches(c, prefix)) {
+				result.add(c);
+			}
+		}
+		if (result.size()==count) {
+			result = completions;
+		}
+		Comparator<Completion> comparator =
+				MatchScoreComparator.create(result, prefix);
+		if (comparator!=null) {
+			if (result==completions) { // Don't modify a list we don't own
+				result = new ArrayList<Completion>(completions);
+			}
+			Collections.sort(result, comparator);
+		}
+		return result;
+
+	}
+
+
+	/**
+	 * Returns those of some lazily-sorted completions that match a prefix.
+	 * The completions are filtered without being sorted, and the result is
+	 * sorted lazily as well.
+	 *
+	 * @param completions The completions to filter.
+	 * @param prefix The prefix.  This cannot be empty.
+	 * @return The matching completions.
+	 * @see #filter(List, String)
+	 */
+	private static List<Completion> filter(SortedCompletionList completions,
+			String prefix) {
+
+		int count = completions.size();
+		List<Completion> result = new ArrayList<Completion>(count);
+		for (int i=0; i<count; i++) {
+			Completion c = completions.getUnsorted(i);
+			if (MatchScoreComparator.matches(c, prefix)) {
+				result.add(c);
+			}
+		}
+
+		Comparator<Completion> comparator =
+				MatchScoreComparator.create(result, prefix);
+		if (comparator==null) { // All match equally well
+			if (result.size()==count) {
+				return completions;
+			}
+			comparator = completions.getComparator();
+			if (comparator instanceof MatchScoreComparator) {
+				// Scores for a shorter prefix no longer apply
+				comparator = new SortByRelevanceComparator();
+			}
+		}
+		return new PartiallySortedList(
+				result.toArray(new Completion[result.size()]), comparator);
+
+	}
+
+
+	/**
+	 * Returns the cached completions for a prefix of the word being typed.
+	 *
+	 * @param prefix The already-entered text.  This may be
+	 *        <code>null</code>.
+	 * @param doc The document being edited.
+	 * @param wordStart The offset of the word in the document.
+	 * @return The completions matching <code>prefix</code>, or
+	 *         <code>null</code> if the provider must be asked for them.
+	 *         The returned list must not be modified.
+	 */
+	public List<Completion> get(String prefix, Document doc, int wordStart) {
+
+		if (doc!=this.doc || wordStart!=this.wordStart) {
+			return null;
+		}
+		if (prefix==null) {
+			prefix = "";
+		}
+		if (!Util.startsWithIgnoreCase(prefix, prefixes.get(0)) ||
+				(!narrowable && !prefix.equals(prefixes.get(0)))) {
+			return null; // Deleted beyond what the provider was asked for
+		}
+		wordEnd = wordStart + prefix.length();
+
+		int top = prefixes.size() - 1;
+		while (!Util.startsWithIgnoreCase(prefix, prefixes.get(top))) {
+			prefixes.remove(top);
+			results.remove(top);
+			top--;
+		}
+
+		List<Completion> result = results.get(top);
+		if (prefixes.get(top).length()<prefix.length()) {
+			result = filter(result, prefix);
+			prefixes.add(prefix);
+			results.add(result);
+		}
+		return result;
+
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void insertUpdate(DocumentEvent e) {
+		int offs = e.getOffset();
+		if (offs<wordStart || offs>wordEnd) {
+			clear();
+		}
+		else {
+			wordEnd += e.getLength();
+		}
+	}
+
+
+	/**
+	 * Caches the completions the provider returned for the word being typed.
+	 * Any previously-cached completions are discarded.
+	 *
+	 * @param prefix The already-entered text the provider was asked for
+	 *        completions for.  This may be <code>null</code>.
+	 * @param doc The document being edited.
+	 * @param wordStart The offset of the word in the document.
+	 * @param completions The completions returned by the provider.
+	 * @param narrowable Whether the provider is prefix-monotone, so that its
+	 *        completions for longer prefixes may be narrowed down from
+	 *        these.
+	 * @see CompletionProviderBase#isPrefixMonotone()
+	 */
+	public void put(String prefix, Document doc, int wordStart,
+			List<Completion> completions, boolean narrowable) {
+		clear();
+		if (prefix==null) {
+			prefix = "";
+		}
+		prefixes.add(prefix);
+		results.add(filter(completions, prefix));
+		this.wordStart = wordStart;
+		wordEnd = wordStart + prefix.length();
+		this.narrowable = narrowable;
+		this.doc = doc;
+		doc.addDocumentListener(this);
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void removeUpdate(DocumentEvent e) {
+		int offs = e.getOffset();
+		if (offs<wordStart || offs+e.getLength()>wordEnd) {
+			clear();
+		}
+		else {
+			wordEnd -= e.getLength();
+		}
+	}
+
+
+}
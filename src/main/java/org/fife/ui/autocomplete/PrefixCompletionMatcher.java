@@ -0,0 +1,40 @@
+/*
+ * 10/17/2026
+ *
+ * PrefixCompletionMatcher.java - Matches completions starting with the
+ * entered text.
+ *
+ * This library is distributed under a modified BSD license.  See the included
+ * RSyntaxTextArea.License.txt file for details.
+ */
+package org.fife.ui.autocomplete;
+
+
+/**
+ * The default {@link CompletionMatcher}.  It matches completions whose input
+ * text starts with the entered text, ignoring case.
+ *
+ * @version 1.0
+ * @see FuzzyCompletionMatcher
+ */
+public class PrefixCompletionMatcher implements CompletionMatcher {
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public boolean isPrefixMatcher() {
+		return true;
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public int match(String pattern, String text) {
+		return Util.startsWithIgnoreCase(text, pattern) ? PREFIX_MATCH :
+			NO_MATCH;
+	}
+
+
+}
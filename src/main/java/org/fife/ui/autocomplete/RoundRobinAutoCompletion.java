@@ -11,8 +11,11 @@
 package org.fife.ui.autocomplete;
 
 import java.util.*;
+import java.util.concurrent.*;
 import java.awt.event.*;
 import javax.swing.*;
+import javax.swing.event.*;
+import javax.swing.text.*;
 
 
 /**
@@ -32,6 +35,14 @@ import javax.swing.*;
  * ac.install(textArea);
  * </pre>
  * 
+ * When the trigger key is pressed, the completions of all providers are
+ * computed at once, and kept until the text or the caret position changes,
+ * so cycling through them is instant.  Providers that are
+ * {@link AsyncCompletionProvider}s are evaluated in parallel on the
+ * {@link #setCompletionExecutor(Executor) completion executor}, if there is
+ * one, and the popup is displayed once they are all done.  The number of
+ * completions of each provider is displayed below the completion list.
+ * 
  * @author mschlegel
  */
 public class RoundRobinAutoCompletion extends AutoCompletion {
@@ -39,6 +50,45 @@ public class RoundRobinAutoCompletion extends AutoCompletion {
 	/** The List of CompletionProviders to use */
 	private List<CompletionProvider> cycle = new ArrayList<CompletionProvider>();
 
+	/**
+	 * The completions of each provider in {@link #cycle} for the text and
+	 * caret position when they were computed, or <code>null</code> if they
+	 * aren't known.
+	 */
+	private List<List<Completion>> results;
+
+	/**
+	 * The document {@link #results} were computed for.  This is listened to,
+	 * so they can be discarded when it's modified.
+	 */
+	private Document resultsDoc;
+
+	/**
+	 * The caret position {@link #results} were computed for.
+	 */
+	private int resultsDot;
+
+	/**
+	 * Identifies the latest computation of {@link #results}.  Results of
+	 * any other computation are stale and discarded.
+	 */
+	private int resultsRequest;
+
+	/**
+	 * Discards {@link #results} when {@link #resultsDoc} is modified.
+	 */
+	private DocumentListener resultsInvalidator = new DocumentListener() {
+		public void changedUpdate(DocumentEvent e) {
+			// Ignore attribute changes
+		}
+		public void insertUpdate(DocumentEvent e) {
+			clearResults();
+		}
+		public void removeUpdate(DocumentEvent e) {
+			clearResults();
+		}
+	};
+
 
 	/**
 	 * Constructor.
@@ -73,6 +123,7 @@ public class RoundRobinAutoCompletion extends AutoCompletion {
 	 */
 	public void addCompletionProvider(CompletionProvider provider) {
 		cycle.add(provider);
+		clearResults();
 	}
 
 
@@ -92,6 +143,93 @@ public class RoundRobinAutoCompletion extends AutoCompletion {
 	}
 
 
+	/**
+	 * Discards the completions computed, or being computed, for all
+	 * providers.
+	 */
+	private void clearResults() {
+		if (resultsDoc!=null) {
+			resultsDoc.removeDocumentListener(resultsInvalidator);
+			resultsDoc = null;
+		}
+		results = null;
+		resultsRequest++;
+	}
+
+
+	/**
+	 * Starts computing the completions of all providers for the text at the
+	 * caret.  Those of {@link AsyncCompletionProvider}s are computed in
+	 * parallel on the completion executor, if there is one, while the others
+	 * are computed right away, on the EDT.  Once all are known, they are
+	 * stored in {@link #results} and displayed.
+	 */
+	private void computeResults() {
+
+		JTextComponent comp = getTextComponent();
+		Executor executor = getCompletionExecutor();
+		final int request = ++resultsRequest;
+		int count = cycle.size();
+
+		// Unknown completions are null until computed
+		final List<List<Completion>> computed = new ArrayList<List<Completion>>(
+				Collections.<List<Completion>>nCopies(count, null));
+		List<Callable<List<Completion>>> tasks =
+				new ArrayList<Callable<List<Completion>>>(count);
+		for (int i=0; i<count; i++) {
+			CompletionProvider provider = cycle.get(i);
+			if (executor!=null && provider instanceof AsyncCompletionProvider) {
+				tasks.add(((AsyncCompletionProvider)provider).
+						createCompletionsTask(comp));
+			}
+			else {
+				tasks.add(null);
+				computed.set(i, nonNull(provider.getCompletions(comp)));
+			}
+		}
+
+		if (!computed.contains(null)) {
+			resultsComputed(request, computed);
+			return;
+		}
+		for (int i=0; i<count; i++) {
+			final Callable<List<Completion>> task = tasks.get(i);
+			if (task==null) {
+				continue;
+			}
+			final int index = i;
+			executor.execute(new Runnable() {
+				public void run() {
+					List<Completion> completions = null;
+					Throwable error = null;
+					try {
+						completions = task.call();
+					} catch (Exception e) {
+						error = e;
+					} catch (Error e) {
+						error = e;
+					}
+					final List<Completion> result = nonNull(completions);
+					final Throwable failure = error;
+					SwingUtilities.invokeLater(new Runnable() {
+						public void run() {
+							computed.set(index, result);
+							if (!computed.contains(null)) {
+								resultsComputed(request, computed);
+							}
+							if (failure!=null) {
+								// Fail on the EDT, as computing them there would
+								rethrow(failure);
+							}
+						}
+					});
+				}
+			});
+		}
+
+	}
+
+
 	/**
 	 * Overridden to provide our own implementation of the action.
 	 */
@@ -101,6 +239,99 @@ public class RoundRobinAutoCompletion extends AutoCompletion {
 	}
 
 
+	/**
+	 * Displays the completions of the current provider, or of the next one
+	 * having any, along with the number of completions of each provider.
+	 *
+	 * @param results The completions of each provider in the cycle.
+	 */
+	private void displayResults(List<List<Completion>> results) {
+		//Check if there are completions from the current provider. If not, advance to the next provider and display that one.
+		//A completion provider can force displaying "his" empty completion pop-up by returning an empty BasicCompletion. This is useful when the user is typing backspace and you like to display the first provider always first.
+		int index = cycle.indexOf(getCompletionProvider());
+		for (int i=1; i<cycle.size(); i++) {
+			if (results.get(index).size() > 0) {
+				//nothing to do, just let the current provider display
+				break;
+			}
+			else{
+				//search for non-empty completions
+				advanceProvider();
+				index = cycle.indexOf(getCompletionProvider());
+			}
+		}
+		// Display the completions already computed, rather than asking
+		// the provider again
+		putCompletions(results.get(index));
+		refreshPopupWindow();
+		int[] counts = new int[results.size()];
+		for (int i=0; i<counts.length; i++) {
+			counts[i] = results.get(i).size();
+		}
+		setProviderCounts(counts, index);
+	}
+
+
+	/**
+	 * Returns the completions of all providers for the text at the caret,
+	 * starting to compute them if they aren't known and aren't being
+	 * computed.
+	 *
+	 * @return The completions of each provider in the cycle, or
+	 *         <code>null</code> if they are still being computed.  In that
+	 *         case, they are displayed once they are all done.
+	 */
+	private List<List<Completion>> getResults() {
+		JTextComponent comp = getTextComponent();
+		Document doc = comp.getDocument();
+		int dot = comp.getCaretPosition();
+		if (doc!=resultsDoc || dot!=resultsDot) {
+			clearResults();
+			resultsDoc = doc;
+			resultsDot = dot;
+			doc.addDocumentListener(resultsInvalidator);
+			computeResults();
+		}
+		return results;
+	}
+
+
+	/**
+	 * Returns a list of completions, or an empty list.
+	 *
+	 * @param completions The completions, or <code>null</code>.
+	 * @return The completions, or an empty list if they are
+	 *         <code>null</code>.
+	 */
+	private static List<Completion> nonNull(List<Completion> completions) {
+		if (completions==null) {
+			return Collections.emptyList();
+		}
+		return completions;
+	}
+
+
+	/**
+	 * Called on the EDT once the completions of all providers have been
+	 * computed.  They are discarded if they are stale, that is, if the
+	 * document was modified or the caret moved since they were requested.
+	 *
+	 * @param request The computation.
+	 * @param computed The completions of each provider in the cycle.
+	 */
+	private void resultsComputed(int request,
+			List<List<Completion>> computed) {
+		JTextComponent comp = getTextComponent();
+		if (request!=resultsRequest || comp==null ||
+				comp.getDocument()!=resultsDoc ||
+				comp.getCaretPosition()!=resultsDot) {
+			return; // Superseded
+		}
+		results = computed;
+		displayResults(computed);
+	}
+
+
 	/**
 	 * Resets the cycle to use the default provider on next refresh.
 	 */
@@ -113,6 +344,17 @@ public class RoundRobinAutoCompletion extends AutoCompletion {
 	}
 
 
+	/**
+	 * Overridden to also discard the completions computed for all providers,
+	 * and stop listening to their document.
+	 */
+	@Override
+	public void uninstall() {
+		clearResults();
+		super.uninstall();
+	}
+
+
 	/**
 	 * An implementation of the auto-complete action that ensures the proper
 	 * <code>CompletionProvider</code> is displayed based on the context in
@@ -122,31 +364,24 @@ public class RoundRobinAutoCompletion extends AutoCompletion {
 
 		@Override
 		public void actionPerformed(ActionEvent e) {
-			if (isAutoCompleteEnabled()) {
-				if (isPopupVisible()) {
-					// The popup is already visible, and user pressed the
-					// trigger-key.  In this case, move to next provider.
-					advanceProvider();
-				}
-				else {
-					// Be sure to start with the default provider
-					resetProvider();
-				}
-				//Check if there are completions from the current provider. If not, advance to the next provider and display that one.
-				//A completion provider can force displaying "his" empty completion pop-up by returning an empty BasicCompletion. This is useful when the user is typing backspace and you like to display the first provider always first.
-				for (int i=1; i<cycle.size(); i++) {
-					List<Completion> completions = getCompletionProvider().getCompletions(getTextComponent());
-					if (completions.size() > 0) {
-						//nothing to do, just let the current provider display
-						break;
-					}
-					else{
-						//search for non-empty completions
-						advanceProvider();
-					}
-				}
+			if (!isAutoCompleteEnabled()) {
+				super.actionPerformed(e);
+				return;
+			}
+			if (isPopupVisible()) {
+				// The popup is already visible, and user pressed the
+				// trigger-key.  In this case, move to next provider.
+				advanceProvider();
+			}
+			else {
+				// Be sure to start with the default provider
+				resetProvider();
+			}
+			List<List<Completion>> results = getResults();
+			if (results!=null) {
+				displayResults(results);
 			}
-			super.actionPerformed(e);
+			// Otherwise, they're displayed once computed
 		}
 
 	}
@@ -0,0 +1,187 @@
+/*
+ * 10/17/2026
+ *
+ * SortedCompletionList.java - A list of completions that is put into order as
+ * it is read.
+ *
+ * This library is distributed under a modified BSD license.  See the included
+ * RSyntaxTextArea.License.txt file for details.
+ */
+package org.fife.ui.autocomplete;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.RandomAccess;
+
+
+/**
+ * A list of completions that puts itself into order lazily, as it is read.
+ * Code that doesn't care about the order, such as code filtering the
+ * completions, can use {@link #getUnsorted(int)} to avoid doing that work.
+ * <p>
+ *
+ * These lists are returned by
+ * {@link CompletionProvider#getCompletions(javax.swing.text.JTextComponent)},
+ * and callers may modify them.  The first modification sorts the whole list
+ * into a plain copy, which is used from then on.  A modified list is no
+ * longer considered sorted; see {@link #isModified()}.<p>
+ *
+ * Since reading sorts, these lists are not thread-safe, even for readers.
+ *
+ * @version 1.0
+ * @see PartiallySortedList
+ * @see MergedCompletionList
+ */
+abstract class SortedCompletionList extends AbstractList<Completion>
+									implements RandomAccess {
+
+	/**
+	 * The elements of this list once it has been modified, or
+	 * <code>null</code> if it hasn't been.
+	 */
+	private List<Completion> copy;
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void add(int index, Completion c) {
+		getCopy().add(index, c);
+		modCount++;
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public final Completion get(int index) {
+		return copy!=null ? copy.get(index) : getImpl(index);
+	}
+
+
+	/**
+	 * Returns the order of the elements in this list, unless it has been
+	 * modified.
+	 *
+	 * @return The comparator.
+	 * @see #isModified()
+	 */
+	public abstract Comparator<Completion> getComparator();
+
+
+	/**
+	 * Returns a modifiable copy of the elements of this list, in order,
+	 * copying them the first time this is called.
+	 *
+	 * @return The copy.
+	 */
+	private List<Completion> getCopy() {
+		if (copy==null) {
+			int size = sizeImpl();
+			List<Completion> list = new ArrayList<Completion>(size);
+			for (int i=0; i<size; i++) {
+				list.add(getImpl(i));
+			}
+			copy = list;
+		}
+		return copy;
+	}
+
+
+	/**
+	 * Returns an element, sorting as much of this list as necessary.
+	 *
+	 * @param index The index of the element.
+	 * @return The element.
+	 * @see #get(int)
+	 */
+	protected abstract Completion getImpl(int index);
+
+
+	/**
+	 * Returns an element without sorting anything.  Iterating over all
+	 * elements this way visits each of them once, in no particular order.
+	 *
+	 * @param index The index of the element.
+	 * @return The element.
+	 */
+	public final Completion getUnsorted(int index) {
+		return copy!=null ? copy.get(index) : getUnsortedImpl(index);
+	}
+
+
+	/**
+	 * Returns an element without sorting anything.
+	 *
+	 * @param index The index of the element.
+	 * @return The element.
+	 * @see #getUnsorted(int)
+	 */
+	protected abstract Completion getUnsortedImpl(int index);
+
+
+	/**
+	 * Returns whether this list has been modified since it was created.  If
+	 * it has, its elements are no longer necessarily in the order of
+	 * {@link #getComparator()}.
+	 *
+	 * @return Whether this list has been modified.
+	 */
+	public final boolean isModified() {
+		return copy!=null;
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Completion remove(int index) {
+		Completion c = getCopy().remove(index);
+		modCount++;
+		return c;
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void removeRange(int fromIndex, int toIndex) {
+		getCopy().subList(fromIndex, toIndex).clear();
+		modCount++;
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Completion set(int index, Completion c) {
+		return getCopy().set(index, c);
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public final int size() {
+		return copy!=null ? copy.size() : sizeImpl();
+	}
+
+
+	/**
+	 * Returns the number of elements in this list, before it is modified.
+	 *
+	 * @return The number of elements.
+	 * @see #size()
+	 */
+	protected abstract int sizeImpl();
+
+
+}
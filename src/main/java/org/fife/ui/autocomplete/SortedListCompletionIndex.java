@@ -0,0 +1,141 @@
+/*
+ * 10/17/2026
+ *
+ * SortedListCompletionIndex.java - Binary searches a sorted list of
+ * completions.
+ *
+ * This library is distributed under a modified BSD license.  See the included
+ * RSyntaxTextArea.License.txt file for details.
+ */
+package org.fife.ui.autocomplete;
+
+import java.util.Collections;
+import java.util.List;
+
+
+/**
+ * The default {@link CompletionIndex}.  It needs no memory beyond the sorted
+ * list itself and no time to build; each query does two binary searches, one
+ * for each end of the matching range.
+ *
+ * @version 1.0
+ * @see TrieCompletionIndex
+ */
+public class SortedListCompletionIndex implements CompletionIndex {
+
+	/**
+	 * The indexed completions.
+	 */
+	private List<Completion> completions;
+
+	/**
+	 * Creates instances of this index.
+	 */
+	public static final Factory FACTORY = new Factory() {
+		public CompletionIndex createIndex(List<Completion> completions) {
+			return new SortedListCompletionIndex(completions);
+		}
+	};
+
+
+	/**
+	 * Constructor.
+	 *
+	 * @param completions The completions, sorted case-insensitively by input
+	 *        text.
+	 */
+	public SortedListCompletionIndex(List<Completion> completions) {
+		this.completions = completions;
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public int getCompletionCount(String prefix) {
+		return upperBound(prefix, true) - lowerBound(prefix, true);
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public List<Completion> getCompletionsStartingWith(String prefix) {
+		return view(lowerBound(prefix, true), upperBound(prefix, true));
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public List<Completion> getCompletionsWithInputText(String inputText) {
+		return view(lowerBound(inputText, false),
+				upperBound(inputText, false));
+	}
+
+
+	/**
+	 * Compares a completion's input text to a key.
+	 *
+	 * @param c The completion.
+	 * @param key The key.
+	 * @param prefix Whether <code>key</code> is a prefix, as opposed to the
+	 *        entire input text.
+	 * @return The sort order.
+	 */
+	private static final int compare(Completion c, String key,
+			boolean prefix) {
+		String text = c.getInputText();
+		return prefix ? Util.comparePrefixIgnoreCase(text, key) :
+			String.CASE_INSENSITIVE_ORDER.compare(text, key);
+	}
+
+
+	/**
+	 * Returns the index of the first completion that does not sort before
+	 * a key.
+	 */
+	private int lowerBound(String key, boolean prefix) {
+		int low = 0;
+		int high = completions.size();
+		while (low<high) {
+			int mid = (low + high) >>> 1;
+			if (compare(completions.get(mid), key, prefix)<0) {
+				low = mid + 1;
+			}
+			else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+
+
+	/**
+	 * Returns the index of the first completion that sorts after a key.
+	 */
+	private int upperBound(String key, boolean prefix) {
+		int low = 0;
+		int high = completions.size();
+		while (low<high) {
+			int mid = (low + high) >>> 1;
+			if (compare(completions.get(mid), key, prefix)<=0) {
+				low = mid + 1;
+			}
+			else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+
+
+	private List<Completion> view(int start, int end) {
+		if (start>=end) {
+			return Collections.emptyList();
+		}
+		return Collections.unmodifiableList(completions.subList(start, end));
+	}
+
+
+}
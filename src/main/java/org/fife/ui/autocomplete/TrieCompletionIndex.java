@@ -0,0 +1,250 @@
+/*
+ * 10/17/2026
+ *
+ * TrieCompletionIndex.java - A case-folded radix trie over a sorted list of
+ * completions.
+ *
+ * This library is distributed under a modified BSD license.  See the included
+ * RSyntaxTextArea.License.txt file for details.
+ */
+package org.fife.ui.autocomplete;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+
+/**
+ * A {@link CompletionIndex} backed by a radix trie of case-folded input
+ * texts.  Queries cost time proportional to the length of the prefix only,
+ * independent of the number of completions, and no string comparisons are
+ * done.  This makes it a good fit for providers with hundreds of thousands of
+ * completions, at the cost of building the trie once each time the
+ * provider's completions change.<p>
+ *
+ * Each node of the trie remembers the range of the sorted list holding the
+ * completions below it, so result counts are available directly from the
+ * nodes.
+ *
+ * @version 1.0
+ * @see SortedListCompletionIndex
+ */
+public class TrieCompletionIndex implements CompletionIndex {
+
+	/**
+	 * The indexed completions.
+	 */
+	private List<Completion> completions;
+
+	/**
+	 * The root of the trie; this node matches the empty prefix.
+	 */
+	private Node root;
+
+	/**
+	 * Creates instances of this index.
+	 */
+	public static final Factory FACTORY = new Factory() {
+		public CompletionIndex createIndex(List<Completion> completions) {
+			return new TrieCompletionIndex(completions);
+		}
+	};
+
+	private static final char[] NO_CHARS = new char[0];
+	private static final Node[] NO_NODES = new Node[0];
+
+
+	/**
+	 * Constructor.
+	 *
+	 * @param completions The completions, sorted case-insensitively by input
+	 *        text.
+	 */
+	public TrieCompletionIndex(List<Completion> completions) {
+		this.completions = completions;
+		int count = completions.size();
+		String[] keys = new String[count];
+		for (int i=0; i<count; i++) {
+			keys[i] = fold(completions.get(i).getInputText());
+		}
+		root = createNode(keys, 0, count, 0, "");
+	}
+
+
+	/**
+	 * Creates the node (and the subtree below it) for a range of keys that
+	 * all share the same first <code>depth</code> characters.
+	 */
+	private static Node createNode(String[] keys, int start, int end,
+			int depth, String label) {
+
+		Node node = new Node(label, start, end);
+
+		// Keys ending at this node sort first.
+		int i = start;
+		while (i<end && keys[i].length()==depth) {
+			i++;
+		}
+		node.exactEnd = i;
+
+		int childCount = 0;
+		char[] childChars = NO_CHARS;
+		Node[] children = NO_NODES;
+
+		while (i<end) {
+			char ch = keys[i].charAt(depth);
+			int j = i + 1;
+			while (j<end && keys[j].charAt(depth)==ch) {
+				j++;
+			}
+			// In a sorted range, the first and last keys share the longest
+			// prefix common to all of them; that becomes the edge label.
+			String first = keys[i];
+			String last = keys[j-1];
+			int max = Math.min(first.length(), last.length());
+			int childDepth = depth + 1;
+			while (childDepth<max &&
+					first.charAt(childDepth)==last.charAt(childDepth)) {
+				childDepth++;
+			}
+			if (childCount==childChars.length) {
+				int newLen = Math.max(2, childCount*2);
+				childChars = Arrays.copyOf(childChars, newLen);
+				children = Arrays.copyOf(children, newLen);
+			}
+			childChars[childCount] = ch;
+			children[childCount] = createNode(keys, i, j, childDepth,
+					first.substring(depth, childDepth));
+			childCount++;
+			i = j;
+		}
+
+		if (childCount<childChars.length) {
+			childChars = Arrays.copyOf(childChars, childCount);
+			children = Arrays.copyOf(children, childCount);
+		}
+		node.childChars = childChars;
+		node.children = children;
+		return node;
+
+	}
+
+
+	/**
+	 * Returns the node at or below which all keys starting with a prefix
+	 * live.
+	 *
+	 * @param prefix The prefix.
+	 * @param exact Whether the prefix must end exactly at the returned node.
+	 * @return The node, or <code>null</code> if no key matches.
+	 */
+	private Node findNode(String prefix, boolean exact) {
+		Node node = root;
+		int len = prefix.length();
+		int depth = 0;
+		while (depth<len) {
+			char ch = Util.foldCase(prefix.charAt(depth));
+			int index = Arrays.binarySearch(node.childChars, ch);
+			if (index<0) {
+				return null;
+			}
+			node = node.children[index];
+			String label = node.label;
+			int labelLen = label.length();
+			int i = 1;
+			while (i<labelLen && depth+i<len) {
+				if (label.charAt(i)!=Util.foldCase(prefix.charAt(depth+i))) {
+					return null;
+				}
+				i++;
+			}
+			if (i<labelLen && exact) { // Prefix ended in the middle of an edge
+				return null;
+			}
+			depth += labelLen;
+		}
+		return node;
+	}
+
+
+	private static final String fold(String text) {
+		int len = text.length();
+		char[] chars = new char[len];
+		for (int i=0; i<len; i++) {
+			chars[i] = Util.foldCase(text.charAt(i));
+		}
+		return new String(chars);
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public int getCompletionCount(String prefix) {
+		Node node = findNode(prefix, false);
+		return node==null ? 0 : node.end - node.start;
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public List<Completion> getCompletionsStartingWith(String prefix) {
+		Node node = findNode(prefix, false);
+		return node==null ? Collections.<Completion>emptyList() :
+			view(node.start, node.end);
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public List<Completion> getCompletionsWithInputText(String inputText) {
+		Node node = findNode(inputText, true);
+		return node==null ? Collections.<Completion>emptyList() :
+			view(node.start, node.exactEnd);
+	}
+
+
+	private List<Completion> view(int start, int end) {
+		if (start>=end) {
+			return Collections.emptyList();
+		}
+		return Collections.unmodifiableList(completions.subList(start, end));
+	}
+
+
+	/**
+	 * A node in the trie.
+	 */
+	private static final class Node {
+
+		/**
+		 * The case-folded characters on the edge leading to this node.
+		 */
+		private String label;
+
+		/**
+		 * The range of the sorted list holding all keys at or below this
+		 * node.  Keys ending exactly at this node come first, and end at
+		 * <code>exactEnd</code>.
+		 */
+		private int start, exactEnd, end;
+
+		/**
+		 * The first character of each child's label, sorted, and the
+		 * children themselves.
+		 */
+		private char[] childChars;
+		private Node[] children;
+
+		public Node(String label, int start, int end) {
+			this.label = label;
+			this.start = start;
+			this.end = end;
+		}
+
+	}
+
+
+}
@@ -61,6 +61,9 @@ public class Util {
 	 */
 	private static final Color LIGHT_HYPERLINK_FG = new Color(0xd8ffff);
 
+	static final CompletionMatcher PREFIX_MATCHER =
+										new PrefixCompletionMatcher();
+
 	private static final Pattern TAG_PATTERN = Pattern.compile("<[^>]*>");
 
 	private static final boolean useSubstanceRenderers;
@@ -260,6 +263,112 @@ public class Util {
 	}
 
 
+	/**
+	 * Compares the start of a string against a prefix, ignoring case, using
+	 * the same case folding as <code>String.CASE_INSENSITIVE_ORDER</code>.
+	 * All strings starting with <code>prefix</code> compare as equal to it,
+	 * so in a case-insensitively sorted list they form a contiguous range.
+	 *
+	 * @param str The string to check.
+	 * @param prefix The prefix.
+	 * @return A negative value, zero, or a positive value if <code>str</code>
+	 *         sorts before, starts with, or sorts after <code>prefix</code>.
+	 * @see #foldCase(char)
+	 */
+	static int comparePrefixIgnoreCase(String str, String prefix) {
+		int strLen = str.length();
+		int prefixLen = prefix.length();
+		int len = Math.min(strLen, prefixLen);
+		for (int i=0; i<len; i++) {
+			char c1 = str.charAt(i);
+			char c2 = prefix.charAt(i);
+			if (c1!=c2) {
+				c1 = foldCase(c1);
+				c2 = foldCase(c2);
+				if (c1!=c2) {
+					return c1 - c2;
+				}
+			}
+		}
+		return strLen<prefixLen ? -1 : 0;
+	}
+
+
+	/**
+	 * Returns a bit mask of the characters in a string, ignoring case.  A
+	 * string can only contain all characters of another string if its mask
+	 * contains all bits of the other string's mask, which makes masks a cheap
+	 * filter before matching strings character by character.  Letters and
+	 * digits each get their own bit; other characters share the remaining
+	 * ones.
+	 *
+	 * @param str The string.
+	 * @return The mask.
+	 * @see #foldCase(char)
+	 */
+	static long getCharMask(String str) {
+		long mask = 0;
+		for (int i=0; i<str.length(); i++) {
+			char ch = foldCase(str.charAt(i));
+			int bit;
+			if (ch>='a' && ch<='z') {
+				bit = ch - 'a';
+			}
+			else if (ch>='0' && ch<='9') {
+				bit = 26 + ch - '0';
+			}
+			else {
+				bit = 36 + ch%28;
+			}
+			mask |= 1L<<bit;
+		}
+		return mask;
+	}
+
+
+	/**
+	 * Returns the matcher a provider uses to find completions matching the
+	 * entered text.
+	 *
+	 * @param provider The provider.
+	 * @return The matcher.  Providers other than
+	 *         {@link CompletionProviderBase}s always match by prefix.
+	 */
+	static CompletionMatcher getCompletionMatcher(CompletionProvider provider) {
+		if (provider instanceof CompletionProviderBase) {
+			return ((CompletionProviderBase)provider).getCompletionMatcher();
+		}
+		return PREFIX_MATCHER;
+	}
+
+
+	/**
+	 * Returns whether typing further only narrows down a provider's
+	 * completions.
+	 *
+	 * @param provider The provider.
+	 * @return Whether the provider is prefix-monotone.  Providers other
+	 *         than {@link CompletionProviderBase}s are assumed not to be.
+	 * @see CompletionProviderBase#isPrefixMonotone()
+	 */
+	static boolean isPrefixMonotone(CompletionProvider provider) {
+		return provider instanceof CompletionProviderBase &&
+				((CompletionProviderBase)provider).isPrefixMonotone();
+	}
+
+
+	/**
+	 * Folds the case of a character the same way
+	 * <code>String.CASE_INSENSITIVE_ORDER</code> does when comparing.
+	 *
+	 * @param ch The character.
+	 * @return The case-folded character.
+	 */
+	static char foldCase(char ch) {
+		return Character.toLowerCase(Character.toUpperCase(ch));
+	}
+
+
 	/**
 	 * Returns whether the specified color is "light" to use as a foreground.
 	 * Colors that return <code>true</code> indicate that the current Look and
@@ -275,12 +384,15 @@ public class Util {
 
 	/**
 	 * Returns whether <code>str</code> starts with <code>start</code>,
-	 * ignoring case.
+	 * ignoring case.  Case is ignored the same way
+	 * <code>String.CASE_INSENSITIVE_ORDER</code> ignores it, so this agrees
+	 * with the indexes looking up completions by prefix.
 	 *
 	 * @param str The string to check.
 	 * @param start The prefix to check for.
 	 * @return Whether <code>str</code> starts with <code>start</code>,
 	 *         ignoring case.
+	 * @see #foldCase(char)
 	 */
 	public static boolean startsWithIgnoreCase(String str, String start) {
 		int startLen = start.length();
@@ -288,7 +400,7 @@ public class Util {
 			for (int i=0; i<startLen; i++) {
 				char c1 = str.charAt(i);
 				char c2 = start.charAt(i);
-				if (Character.toLowerCase(c1)!=Character.toLowerCase(c2)) {
+				if (c1!=c2 && foldCase(c1)!=foldCase(c2)) {
 					return false;
 				}
 			}
@@ -0,0 +1,327 @@
+/*
+ * 10/17/2026
+ *
+ * CompletionCatalogTest.java - Tests for CompletionCatalog.
+ *
+ * This library is distributed under a modified BSD license.  See the included
+ * RSyntaxTextArea.License.txt file for details.
+ */
+package org.fife.ui.autocomplete;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import javax.swing.JTextArea;
+
+import org.junit.After;
+import org.junit.Test;
+
+
+/**
+ * Checks that completions survive being written to and read from a
+ * {@link CompletionCatalog}, and that damaged catalogs are rejected when
+ * opened.
+ *
+ * @version 1.0
+ */
+public class CompletionCatalogTest {
+
+	/**
+	 * The files created by the test.
+	 */
+	private List<File> files = new ArrayList<File>();
+
+
+	@After
+	public void tearDown() {
+		for (File file : files) {
+			file.delete();
+		}
+	}
+
+
+	/**
+	 * Returns the completions the tests store, one of each kind a catalog
+	 * can hold.
+	 *
+	 * @param provider The provider of the completions.
+	 * @return The completions.
+	 */
+	private static List<Completion> createCompletions(
+			CompletionProvider provider) {
+
+		List<Completion> completions = new ArrayList<Completion>();
+
+		BasicCompletion bc = new BasicCompletion(provider, "while");
+		bc.setShortDescription("loop");
+		bc.setSummary("<b>while</b> loops");
+		completions.add(bc);
+		completions.add(new BasicCompletion(provider, "whilst"));
+
+		VariableCompletion vc = new VariableCompletion(provider, "errno",
+				"int");
+		vc.setShortDescription("The last error");
+		vc.setDefinedIn("errno.h");
+		completions.add(vc);
+
+		FunctionCompletion fc = new FunctionCompletion(provider, "printf",
+				"int");
+		ParameterizedCompletion.Parameter format =
+				new ParameterizedCompletion.Parameter("const char *",
+						"format");
+		format.setDescription("The format");
+		ParameterizedCompletion.Parameter args =
+				new ParameterizedCompletion.Parameter(null, "...", true);
+		fc.setParams(Arrays.asList(format, args));
+		fc.setShortDescription("Prints formatted output");
+		fc.setReturnValueDescription("The number of characters printed");
+		fc.setDefinedIn("stdio.h");
+		completions.add(fc);
+
+		FunctionCompletion noParams = new FunctionCompletion(provider,
+				"abort", "void");
+		noParams.setParams(
+				new ArrayList<ParameterizedCompletion.Parameter>());
+		completions.add(noParams);
+
+		MarkupTagCompletion tag = new MarkupTagCompletion(provider, "div");
+		tag.setDescription("A division");
+		tag.setDefinedIn("HTML");
+		ParameterizedCompletion.Parameter attr =
+				new ParameterizedCompletion.Parameter(null, "class");
+		tag.setAttributes(Collections.singletonList(attr));
+		completions.add(tag);
+		completions.add(new MarkupTagCompletion(provider, "span"));
+
+		for (int i=0; i<100; i++) {
+			completions.add(new BasicCompletion(provider, "word" + i));
+		}
+		return completions;
+
+	}
+
+
+	/**
+	 * Creates a temporary file, deleted once the test is done.
+	 *
+	 * @param contents The contents of the file.
+	 * @return The file.
+	 * @throws IOException If an IO error occurs.
+	 */
+	private File createFile(byte[] contents) throws IOException {
+		File file = File.createTempFile("completions", ".cat");
+		files.add(file);
+		OutputStream out = new FileOutputStream(file);
+		try {
+			out.write(contents);
+		} finally {
+			out.close();
+		}
+		return file;
+	}
+
+
+	/**
+	 * Returns the catalog of the completions the tests store.
+	 *
+	 * @return The catalog's contents.
+	 * @throws IOException If an IO error occurs.
+	 */
+	private static byte[] createCatalog() throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		CompletionCatalog.write(
+				createCompletions(new DefaultCompletionProvider()), '(', ", ",
+				')', out);
+		return out.toByteArray();
+	}
+
+
+	/**
+	 * Returns the single completion with an input text.
+	 *
+	 * @param provider The provider.
+	 * @param inputText The input text.
+	 * @return The completion.
+	 */
+	private static Completion get(DefaultCompletionProvider provider,
+			String inputText) {
+		List<Completion> completions =
+				provider.getCompletionByInputText(inputText);
+		assertEquals(inputText, 1, completions.size());
+		return completions.get(0);
+	}
+
+
+	@Test
+	public void testRoundTrip() throws IOException {
+
+		File file = createFile(createCatalog());
+		DefaultCompletionProvider provider = new DefaultCompletionProvider();
+		provider.loadFromCatalog(file);
+
+		assertEquals('(', provider.getParameterListStart());
+		assertEquals(", ", provider.getParameterListSeparator());
+		assertEquals(')', provider.getParameterListEnd());
+
+		// Same order as if the completions had been added directly
+		DefaultCompletionProvider expected = new DefaultCompletionProvider();
+		expected.addCompletions(createCompletions(expected));
+		List<Completion> expectedCompletions = expected.getAllCompletions();
+		List<Completion> completions = provider.getAllCompletions();
+		assertEquals(expectedCompletions.size(), completions.size());
+		for (int i=0; i<expectedCompletions.size(); i++) {
+			Completion c = completions.get(i);
+			assertEquals(expectedCompletions.get(i).getInputText(),
+					c.getInputText());
+			assertSame(provider, c.getProvider());
+		}
+
+		BasicCompletion bc = (BasicCompletion)get(provider, "while");
+		assertEquals("while", bc.getReplacementText());
+		assertEquals("loop", bc.getShortDescription());
+		assertEquals("<b>while</b> loops", bc.getSummary());
+		assertNull(((BasicCompletion)get(provider, "whilst")).getSummary());
+
+		VariableCompletion vc = (VariableCompletion)get(provider, "errno");
+		assertEquals("int", vc.getType());
+		assertEquals("The last error", vc.getShortDescription());
+		assertEquals("errno.h", vc.getDefinedIn());
+
+		FunctionCompletion fc = (FunctionCompletion)get(provider, "printf");
+		assertEquals("int", fc.getType());
+		assertEquals("Prints formatted output", fc.getShortDescription());
+		assertEquals("The number of characters printed",
+				fc.getReturnValueDescription());
+		assertEquals("stdio.h", fc.getDefinedIn());
+		assertEquals(2, fc.getParamCount());
+		assertEquals("const char *", fc.getParam(0).getType());
+		assertEquals("format", fc.getParam(0).getName());
+		assertEquals("The format", fc.getParam(0).getDescription());
+		assertTrue(fc.getParam(1).isEndParam());
+		assertNull(fc.getParam(1).getType());
+		assertEquals(0,
+				((FunctionCompletion)get(provider, "abort")).getParamCount());
+
+		MarkupTagCompletion tag = (MarkupTagCompletion)get(provider, "div");
+		assertEquals("A division", tag.getDescription());
+		assertEquals("HTML", tag.getDefinedIn());
+		assertEquals(1, tag.getAttributeCount());
+		assertEquals("class", tag.getAttribute(0).getName());
+		MarkupTagCompletion span = (MarkupTagCompletion)get(provider, "span");
+		assertNull(span.getAttributes());
+		assertEquals(0, span.getAttributeCount());
+
+	}
+
+
+	@Test
+	public void testReplacedParams() throws IOException {
+
+		File file = createFile(createCatalog());
+		DefaultCompletionProvider provider = new DefaultCompletionProvider();
+		provider.loadFromCatalog(file);
+
+		FunctionCompletion fc = (FunctionCompletion)get(provider, "printf");
+		fc.setParams(new ArrayList<ParameterizedCompletion.Parameter>());
+		assertEquals(0, fc.getParamCount());
+
+		ParameterizedCompletion.Parameter param =
+				new ParameterizedCompletion.Parameter("int", "status");
+		fc = (FunctionCompletion)get(provider, "abort");
+		fc.setParams(Arrays.asList(param));
+		assertEquals(1, fc.getParamCount());
+		assertSame(param, fc.getParam(0));
+
+	}
+
+
+	@Test
+	public void testFuzzyMatching() throws IOException {
+
+		File file = createFile(createCatalog());
+		DefaultCompletionProvider provider = new DefaultCompletionProvider();
+		provider.setCompletionMatcher(new FuzzyCompletionMatcher());
+		provider.loadFromCatalog(file);
+		DefaultCompletionProvider expected = new DefaultCompletionProvider();
+		expected.setCompletionMatcher(new FuzzyCompletionMatcher());
+		expected.addCompletions(createCompletions(expected));
+
+		for (String text : new String[] { "w1", "wl", "pf", "xyz", "D" }) {
+			JTextArea textArea = new JTextArea(text);
+			textArea.setCaretPosition(text.length());
+			List<Completion> actual = provider.getCompletions(textArea);
+			List<Completion> wanted = expected.getCompletions(textArea);
+			assertEquals(text, wanted.size(), actual.size());
+			for (int i=0; i<wanted.size(); i++) {
+				assertEquals(text, wanted.get(i).getInputText(),
+						actual.get(i).getInputText());
+			}
+		}
+
+	}
+
+
+	@Test
+	public void testTruncatedFile() throws IOException {
+		byte[] contents = createCatalog();
+		for (int length=0; length<contents.length; length++) {
+			File file = createFile(Arrays.copyOf(contents, length));
+			try {
+				CompletionCatalog.open(file);
+				fail("Catalog truncated to " + length + " bytes was opened");
+			} catch (IOException ioe) {
+				// Expected
+			}
+		}
+	}
+
+
+	@Test
+	public void testCorruptOffset() throws IOException {
+		byte[] contents = createCatalog();
+		contents[24] = 0x7f; // The offset of the first record
+		try {
+			CompletionCatalog.open(createFile(contents));
+			fail("Corrupt catalog was opened");
+		} catch (IOException ioe) {
+			// Expected
+		}
+	}
+
+
+	@Test
+	public void testNotACatalog() throws IOException {
+		byte[] contents = createCatalog();
+		contents[0] = 'X';
+		try {
+			CompletionCatalog.open(createFile(contents));
+			fail("Non-catalog was opened");
+		} catch (IOException ioe) {
+			// Expected
+		}
+	}
+
+
+	@Test(expected=IllegalArgumentException.class)
+	public void testUnsupportedCompletion() throws IOException {
+		DefaultCompletionProvider provider = new DefaultCompletionProvider();
+		Completion c = new ShorthandCompletion(provider, "sysout",
+				"System.out.println(");
+		CompletionCatalog.write(Collections.singletonList(c), '(', ", ",
+				')', new ByteArrayOutputStream());
+	}
+
+
+}
@@ -0,0 +1,235 @@
+/*
+ * 10/17/2026
+ *
+ * MergedCompletionListTest.java - Tests for MergedCompletionList.
+ *
+ * This library is distributed under a modified BSD license.  See the included
+ * RSyntaxTextArea.License.txt file for details.
+ */
+package org.fife.ui.autocomplete;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+
+/**
+ * Checks that {@link MergedCompletionList} has the elements a full sort of
+ * its sources would produce, with or without duplicates removed.
+ *
+ * @version 1.0
+ */
+public class MergedCompletionListTest {
+
+	/**
+	 * Makes the relevance of each completion created unique.
+	 */
+	private int serial;
+
+	private static final Comparator<Completion> BY_RELEVANCE =
+			new SortByRelevanceComparator();
+
+
+	/**
+	 * Asserts that a list is the sorted copy of some elements.  Elements are
+	 * distinct, so there is only one such order.
+	 *
+	 * @param elements The elements, in any order.
+	 * @param list The list being checked.
+	 */
+	private static void assertSortedLike(List<Completion> elements,
+			List<Completion> list) {
+		List<Completion> expected = new ArrayList<Completion>(elements);
+		Collections.sort(expected, BY_RELEVANCE);
+		assertEquals(expected.size(), list.size());
+		for (int i=0; i<expected.size(); i++) {
+			assertSame("Index " + i, expected.get(i), list.get(i));
+		}
+	}
+
+
+	/**
+	 * Creates a source with random completions.  Names are drawn from a
+	 * small range, so sources share many of them.
+	 *
+	 * @param provider The provider of the completions.
+	 * @param count The number of completions.
+	 * @param random The source of randomness.
+	 * @return The completions.
+	 */
+	private List<Completion> createCompletions(
+			CompletionProvider provider, int count, Random random) {
+		List<Completion> completions = new ArrayList<Completion>(count);
+		for (int i=0; i<count; i++) {
+			BasicCompletion c = new BasicCompletion(provider,
+					"item" + random.nextInt(count));
+			// Distinct relevances give all elements a distinct position
+			c.setRelevance(random.nextInt(1000)*100000 + serial++);
+			completions.add(c);
+		}
+		return completions;
+	}
+
+
+	/**
+	 * Returns what merging sources with duplicates removed should keep:
+	 * every completion whose input text and definition don't appear in an
+	 * earlier source.
+	 *
+	 * @param sources The completions of each source.
+	 * @return The completions to keep.
+	 */
+	private static List<Completion> withoutDuplicates(
+			List<List<Completion>> sources) {
+		List<Completion> kept = new ArrayList<Completion>();
+		Set<String> earlier = new HashSet<String>();
+		for (List<Completion> source : sources) {
+			Set<String> keys = new HashSet<String>();
+			for (Completion c : source) {
+				String key = c.getInputText() + '\0' + c.getReplacementText();
+				if (!earlier.contains(key)) {
+					kept.add(c);
+				}
+				keys.add(key);
+			}
+			earlier.addAll(keys);
+		}
+		return kept;
+	}
+
+
+	/**
+	 * Creates a merged list of sources, each lazily sorted.
+	 *
+	 * @param sources The completions of each source.
+	 * @param removeDuplicates Whether to remove duplicates.
+	 * @return The merged list.
+	 */
+	private static MergedCompletionList merge(List<List<Completion>> sources,
+			boolean removeDuplicates) {
+		List<SortedCompletionList> lists =
+				new ArrayList<SortedCompletionList>(sources.size());
+		for (List<Completion> source : sources) {
+			lists.add(new PartiallySortedList(
+					source.toArray(new Completion[source.size()]),
+					BY_RELEVANCE));
+		}
+		return new MergedCompletionList(lists, BY_RELEVANCE,
+				removeDuplicates);
+	}
+
+
+	/**
+	 * Creates the sources of a provider and its ancestors.
+	 *
+	 * @param sizes The number of completions of each.
+	 * @param random The source of randomness.
+	 * @return The completions of each source.
+	 */
+	private List<List<Completion>> createSources(int[] sizes,
+			Random random) {
+		List<List<Completion>> sources = new ArrayList<List<Completion>>();
+		for (int size : sizes) {
+			sources.add(createCompletions(new DefaultCompletionProvider(),
+					size, random));
+		}
+		return sources;
+	}
+
+
+	@Test
+	public void testMerge() {
+		Random random = new Random(1);
+		int[][] sizeSets = { { 1 }, { 0, 10 }, { 10, 0 }, { 40, 40 },
+				{ 1, 1000 }, { 1000, 1, 300 }, { 200, 200, 200, 200 } };
+		for (int[] sizes : sizeSets) {
+			List<List<Completion>> sources = createSources(sizes, random);
+			List<Completion> all = new ArrayList<Completion>();
+			for (List<Completion> source : sources) {
+				all.addAll(source);
+			}
+			assertSortedLike(all, merge(sources, false));
+		}
+	}
+
+
+	@Test
+	public void testMergeWithoutDuplicates() {
+		Random random = new Random(2);
+		int[][] sizeSets = { { 1 }, { 0, 10 }, { 40, 40 }, { 1000, 1, 300 },
+				{ 200, 200, 200, 200 } };
+		for (int[] sizes : sizeSets) {
+			List<List<Completion>> sources = createSources(sizes, random);
+			assertSortedLike(withoutDuplicates(sources),
+					merge(sources, true));
+		}
+	}
+
+
+	@Test
+	public void testRandomAccess() {
+		Random random = new Random(3);
+		List<List<Completion>> sources = createSources(
+				new int[] { 500, 300, 700 }, random);
+		List<Completion> expected = withoutDuplicates(sources);
+		Collections.sort(expected, BY_RELEVANCE);
+		MergedCompletionList list = merge(sources, true);
+		for (int i=0; i<100; i++) {
+			int index = random.nextInt(expected.size());
+			assertSame("Index " + index, expected.get(index),
+					list.get(index));
+		}
+		assertSortedLike(expected, list);
+	}
+
+
+	@Test
+	public void testNestedMerge() {
+		// As sortCompletions does for a chain of parent providers
+		Random random = new Random(4);
+		List<List<Completion>> sources = createSources(
+				new int[] { 100, 150, 200 }, random);
+		for (boolean removeDuplicates : new boolean[] { false, true }) {
+			MergedCompletionList parents = merge(
+					sources.subList(1, 3), removeDuplicates);
+			List<SortedCompletionList> lists =
+					new ArrayList<SortedCompletionList>(2);
+			List<Completion> first = sources.get(0);
+			lists.add(new PartiallySortedList(
+					first.toArray(new Completion[first.size()]),
+					BY_RELEVANCE));
+			lists.add(parents);
+			MergedCompletionList list = new MergedCompletionList(lists,
+					BY_RELEVANCE, removeDuplicates);
+			List<Completion> expected = new ArrayList<Completion>();
+			if (removeDuplicates) {
+				expected = withoutDuplicates(sources);
+			}
+			else {
+				for (List<Completion> source : sources) {
+					expected.addAll(source);
+				}
+			}
+			assertSortedLike(expected, list);
+		}
+	}
+
+
+	@Test(expected=IndexOutOfBoundsException.class)
+	public void testIndexOutOfBounds() {
+		List<List<Completion>> sources = createSources(new int[] { 3, 4 },
+				new Random(5));
+		merge(sources, false).get(7);
+	}
+
+
+}
@@ -0,0 +1,211 @@
+/*
+ * 10/17/2026
+ *
+ * PartiallySortedListTest.java - Tests for PartiallySortedList.
+ *
+ * This library is distributed under a modified BSD license.  See the included
+ * RSyntaxTextArea.License.txt file for details.
+ */
+package org.fife.ui.autocomplete;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+
+/**
+ * Checks that {@link PartiallySortedList}, however it is read, has the
+ * elements a full sort would produce.
+ *
+ * @version 1.0
+ */
+public class PartiallySortedListTest {
+
+	/**
+	 * Sizes around the page boundaries: the first page is 32 elements, and
+	 * pages double from there.
+	 */
+	private static final int[] SIZES = { 0, 1, 2, 31, 32, 33, 95, 96, 97,
+			500, 5000 };
+
+	private static final Comparator<Completion> BY_RELEVANCE =
+			new SortByRelevanceComparator();
+
+
+	/**
+	 * Asserts that a list holds the same elements as the sorted copy of an
+	 * array, in an order consistent with the comparator.  Where elements
+	 * compare as equal, either may come first.
+	 *
+	 * @param items The unsorted elements.
+	 * @param list The list being checked.
+	 * @param comparator The order.
+	 */
+	private static void assertSortedLike(Completion[] items,
+			List<Completion> list, Comparator<Completion> comparator) {
+		List<Completion> expected = new ArrayList<Completion>(
+				Arrays.asList(items));
+		Collections.sort(expected, comparator);
+		assertEquals(expected.size(), list.size());
+		Map<Completion, Integer> remaining =
+				new IdentityHashMap<Completion, Integer>();
+		for (Completion c : expected) {
+			Integer count = remaining.get(c);
+			remaining.put(c, count==null ? 1 : count+1);
+		}
+		for (int i=0; i<expected.size(); i++) {
+			Completion c = list.get(i);
+			assertEquals("Index " + i, 0,
+					comparator.compare(expected.get(i), c));
+			Integer count = remaining.get(c);
+			if (count==null || count==0) {
+				fail("Unexpected element at " + i + ": " + c);
+			}
+			remaining.put(c, count-1);
+		}
+	}
+
+
+	/**
+	 * Creates completions with random names and relevances.
+	 *
+	 * @param count The number of completions.
+	 * @param random The source of randomness.
+	 * @param distinct Whether all completions should be distinct.
+	 *        Otherwise, many compare as equal.
+	 * @return The completions.
+	 */
+	private static Completion[] createCompletions(int count, Random random,
+			boolean distinct) {
+		DefaultCompletionProvider provider = new DefaultCompletionProvider();
+		Completion[] items = new Completion[count];
+		for (int i=0; i<count; i++) {
+			String name = distinct ? "item" + i :
+				"item" + random.nextInt(Math.max(count/4, 1));
+			BasicCompletion c = new BasicCompletion(provider, name);
+			c.setRelevance(random.nextInt(distinct ? 1000 : 3));
+			items[i] = c;
+		}
+		return items;
+	}
+
+
+	@Test
+	public void testSequentialRead() {
+		Random random = new Random(1);
+		for (int size : SIZES) {
+			Completion[] items = createCompletions(size, random, true);
+			List<Completion> list = new PartiallySortedList(items.clone(),
+					BY_RELEVANCE);
+			assertSortedLike(items, list, BY_RELEVANCE);
+		}
+	}
+
+
+	@Test
+	public void testRandomAccess() {
+		Random random = new Random(2);
+		for (int size : SIZES) {
+			if (size==0) {
+				continue;
+			}
+			Completion[] items = createCompletions(size, random, true);
+			List<Completion> expected = new ArrayList<Completion>(
+					Arrays.asList(items));
+			Collections.sort(expected, BY_RELEVANCE);
+			List<Completion> list = new PartiallySortedList(items.clone(),
+					BY_RELEVANCE);
+			// Jump around, so pages are sorted out of order of reading
+			for (int i=0; i<50; i++) {
+				int index = random.nextInt(size);
+				assertSame("Index " + index, expected.get(index),
+						list.get(index));
+			}
+			assertSortedLike(items, list, BY_RELEVANCE);
+		}
+	}
+
+
+	@Test
+	public void testLastElementFirst() {
+		Random random = new Random(3);
+		Completion[] items = createCompletions(1000, random, true);
+		List<Completion> expected = new ArrayList<Completion>(
+				Arrays.asList(items));
+		Collections.sort(expected, BY_RELEVANCE);
+		List<Completion> list = new PartiallySortedList(items.clone(),
+				BY_RELEVANCE);
+		assertSame(expected.get(999), list.get(999));
+		assertSortedLike(items, list, BY_RELEVANCE);
+	}
+
+
+	@Test
+	public void testEqualElements() {
+		Random random = new Random(4);
+		for (int size : SIZES) {
+			Completion[] items = createCompletions(size, random, false);
+			List<Completion> list = new PartiallySortedList(items.clone(),
+					BY_RELEVANCE);
+			assertSortedLike(items, list, BY_RELEVANCE);
+		}
+	}
+
+
+	@Test
+	public void testMatchScoreOrder() {
+		Random random = new Random(5);
+		DefaultCompletionProvider provider = new DefaultCompletionProvider();
+		provider.setCompletionMatcher(new FuzzyCompletionMatcher());
+		String[] names = { "getValue", "getvalue", "gv", "goodVibes",
+				"getAllValues", "setValue", "g_v", "GV" };
+		Completion[] items = new Completion[400];
+		for (int i=0; i<items.length; i++) {
+			items[i] = new BasicCompletion(provider,
+					names[random.nextInt(names.length)] + i);
+		}
+		Comparator<Completion> comparator = new MatchScoreComparator("gv");
+		List<Completion> list = new PartiallySortedList(items.clone(),
+				comparator);
+		assertSortedLike(items, list, comparator);
+	}
+
+
+	@Test
+	public void testGetUnsortedVisitsEachElementOnce() {
+		Random random = new Random(6);
+		Completion[] items = createCompletions(300, random, true);
+		PartiallySortedList list = new PartiallySortedList(items.clone(),
+				BY_RELEVANCE);
+		list.get(40); // Sort part of it
+		Map<Completion, Boolean> seen =
+				new IdentityHashMap<Completion, Boolean>();
+		for (int i=0; i<list.size(); i++) {
+			seen.put(list.getUnsorted(i), Boolean.TRUE);
+		}
+		assertEquals(items.length, seen.size());
+		for (Completion c : items) {
+			assertEquals(Boolean.TRUE, seen.get(c));
+		}
+	}
+
+
+	@Test(expected=IndexOutOfBoundsException.class)
+	public void testIndexOutOfBounds() {
+		Completion[] items = createCompletions(10, new Random(7), true);
+		new PartiallySortedList(items, BY_RELEVANCE).get(10);
+	}
+
+
+}
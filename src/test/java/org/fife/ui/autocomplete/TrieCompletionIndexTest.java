@@ -0,0 +1,147 @@
+/*
+ * 10/17/2026
+ *
+ * TrieCompletionIndexTest.java - Tests for TrieCompletionIndex.
+ *
+ * This library is distributed under a modified BSD license.  See the included
+ * RSyntaxTextArea.License.txt file for details.
+ */
+package org.fife.ui.autocomplete;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+
+/**
+ * Checks that {@link TrieCompletionIndex} finds exactly what
+ * {@link SortedListCompletionIndex} does.
+ *
+ * @version 1.0
+ */
+public class TrieCompletionIndexTest {
+
+	/**
+	 * Characters whose case folding is unusual: dotless and dotted i, long
+	 * s, final sigma and the Kelvin sign all fold to the same character as
+	 * some ASCII or Greek letter.
+	 */
+	private static final String TRICKY_CHARS =
+			"aAbBiIsSkK_1\u0131\u0130\u017f\u03c2\u03c3\u03a3\u212a\u00df";
+
+
+	/**
+	 * Creates sorted completions for some input texts.
+	 *
+	 * @param texts The input texts.
+	 * @return The completions, sorted as providers keep them.
+	 */
+	private static List<Completion> createCompletions(List<String> texts) {
+		DefaultCompletionProvider provider = new DefaultCompletionProvider();
+		List<Completion> completions = new ArrayList<Completion>();
+		for (String text : texts) {
+			completions.add(new BasicCompletion(provider, text));
+		}
+		Collections.sort(completions,
+				AbstractCompletionProvider.SORT_COMPARATOR);
+		return completions;
+	}
+
+
+	/**
+	 * Asserts that both indices agree for every prefix of every input text,
+	 * and for the case-swapped and case-folded variants of those prefixes.
+	 *
+	 * @param texts The input texts.
+	 */
+	private static void assertSameResults(List<String> texts) {
+
+		List<Completion> completions = createCompletions(texts);
+		CompletionIndex expected = new SortedListCompletionIndex(completions);
+		CompletionIndex actual = new TrieCompletionIndex(completions);
+
+		Set<String> queries = new LinkedHashSet<String>();
+		queries.add("");
+		queries.add("zzz-no-match");
+		for (String text : texts) {
+			for (int i=0; i<=text.length(); i++) {
+				String prefix = text.substring(0, i);
+				queries.add(prefix);
+				queries.add(prefix.toUpperCase());
+				queries.add(prefix.toLowerCase());
+				queries.add(prefix + "\uffff");
+			}
+		}
+
+		for (String query : queries) {
+			assertEquals("Count for '" + query + "'",
+					expected.getCompletionCount(query),
+					actual.getCompletionCount(query));
+			assertEquals("Prefix '" + query + "'",
+					expected.getCompletionsStartingWith(query),
+					actual.getCompletionsStartingWith(query));
+			assertEquals("Input text '" + query + "'",
+					expected.getCompletionsWithInputText(query),
+					actual.getCompletionsWithInputText(query));
+		}
+
+	}
+
+
+	@Test
+	public void testEmpty() {
+		assertSameResults(new ArrayList<String>());
+	}
+
+
+	@Test
+	public void testCaseFolding() {
+		List<String> texts = new ArrayList<String>();
+		String[] words = { "id", "ID", "Id", "\u0131d", "\u0130d", "stuff",
+				"Stuff", "\u017ftuff", "kelvin", "\u212aelvin", "\u03c3igma",
+				"\u03c2igma", "\u03a3IGMA", "stra\u00dfe", "STRASSE", "i",
+				"\u0131", "\u0130", "s", "\u017f" };
+		for (String word : words) {
+			texts.add(word);
+		}
+		assertSameResults(texts);
+	}
+
+
+	@Test
+	public void testDuplicatesAndPrefixes() {
+		List<String> texts = new ArrayList<String>();
+		String[] words = { "a", "a", "A", "ab", "abc", "abc", "ABC", "abcd",
+				"b", "ba", "bab", "" };
+		for (String word : words) {
+			texts.add(word);
+		}
+		assertSameResults(texts);
+	}
+
+
+	@Test
+	public void testRandom() {
+		Random random = new Random(42);
+		List<String> texts = new ArrayList<String>();
+		for (int i=0; i<2000; i++) {
+			int length = 1 + random.nextInt(6);
+			StringBuilder sb = new StringBuilder(length);
+			for (int j=0; j<length; j++) {
+				sb.append(TRICKY_CHARS.charAt(
+						random.nextInt(TRICKY_CHARS.length())));
+			}
+			texts.add(sb.toString());
+		}
+		assertSameResults(texts);
+	}
+
+
+}